@@ -0,0 +1,122 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Pair counts in front of an exact source (--prefilter bigram). A pattern occurs only where all of
+ * its adjacent pairs do, so the smallest pair count bounds its count: a candidate with a pair that
+ * never occurs is answered 0 without a scan, and a pair of two different items, whose occurrences
+ * cannot overlap, is answered exactly by its own count. Only the remaining candidates reach the
+ * source, in one smaller batch. A removal can join items that were not adjacent before, so the
+ * pair counts are rebuilt from the remaining sequences after every removed pattern.
+ */
+final class BigramFilter implements FrequencySource {
+    private final FrequencySource source;
+    private final Corpus corpus;
+    private Map<Long, Integer> pairCounts;
+
+    BigramFilter(FrequencySource source, Corpus corpus) {
+        this.source = source;
+        this.corpus = corpus;
+        this.pairCounts = countPairs(source.sequences());
+    }
+
+    /** Upper bound on the count of the pattern from its pair counts; 0 rules it out. */
+    int bound(String[] pattern) {
+        int bound = Integer.MAX_VALUE;
+        for (int i = 1; i < pattern.length && bound > 0; i++) {
+            bound = Math.min(bound, pairCounts.getOrDefault(pair(corpus.id(pattern[i - 1]), corpus.id(pattern[i])), 0));
+        }
+        return bound;
+    }
+
+    @Override
+    public int count(String[] pattern) {
+        int answer = answer(pattern);
+        return answer >= 0 ? answer : source.count(pattern);
+    }
+
+    @Override
+    public int[] evaluateBatch(String[][] patterns) {
+        int[] counts = new int[patterns.length];
+        List<Integer> exact = new ArrayList<>();
+        for (int i = 0; i < patterns.length; i++) {
+            counts[i] = answer(patterns[i]);
+            if (counts[i] < 0) {
+                exact.add(i);
+            }
+        }
+        if (exact.isEmpty()) {
+            return counts;
+        }
+        String[][] remaining = new String[exact.size()][];
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = patterns[exact.get(i)];
+        }
+        int[] exactCounts = source.evaluateBatch(remaining);
+        for (int i = 0; i < remaining.length; i++) {
+            counts[exact.get(i)] = exactCounts[i];
+        }
+        return counts;
+    }
+
+    @Override
+    public int verify(String[] pattern, int estimate) {
+        return source.verify(pattern, estimate);
+    }
+
+    @Override
+    public void removePattern(String[] pattern) {
+        source.removePattern(pattern);
+        pairCounts = countPairs(source.sequences());
+    }
+
+    @Override
+    public List<String> sequences() {
+        return source.sequences();
+    }
+
+    @Override
+    public String[] sample(int length, Random random) {
+        return source.sample(length, random);
+    }
+
+    @Override
+    public int longestRepeat() {
+        return source.longestRepeat();
+    }
+
+    /** The count if the pair counts settle it, else -1. */
+    private int answer(String[] pattern) {
+        if (pattern.length < 2) {
+            return -1;
+        }
+        int bound = bound(pattern);
+        if (bound == 0) {
+            return 0;
+        }
+        if (pattern.length == 2 && !pattern[0].equals(pattern[1])) {
+            return bound;
+        }
+        return -1;
+    }
+
+    private Map<Long, Integer> countPairs(List<String> sequences) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (String sequence : sequences) {
+            String[] items = sequence.trim().split("\\s+");
+            for (int i = 1; i < items.length; i++) {
+                counts.merge(pair(corpus.id(items[i - 1]), corpus.id(items[i])), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static long pair(int first, int second) {
+        return (long) first << 32 | second;
+    }
+}
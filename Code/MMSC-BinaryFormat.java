@@ -0,0 +1,189 @@
+package MMSC;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary container for an encoded corpus.
+ *
+ * Layout, all integers as unsigned LEB128 varints:
+ * <pre>
+ *   "MMSC" version
+ *   symbolCount, then per symbol: kind (0 = item, 1 = pattern code) and
+ *       item: one string | pattern: length followed by that many item strings
+ *   sequenceCount, then the token count of every sequence
+ *   the token stream: one symbol id per token
+ * </pre>
+ * Strings are a byte length followed by UTF-8 bytes. Symbols are numbered by decreasing frequency
+ * in the token stream, so the most common tokens take a single byte.
+ */
+final class BinaryFormat {
+    static final byte[] MAGIC = {'M', 'M', 'S', 'C'};
+    static final int VERSION = 1;
+
+    private BinaryFormat() {
+    }
+
+    static void write(File file, List<String[]> encodedSequences, Map<String, String[]> codeTable) throws IOException {
+        // Number symbols by frequency
+        Map<String, Integer> counts = new HashMap<>();
+        for (String[] sequence : encodedSequences) {
+            for (String token : sequence) {
+                if (!token.isEmpty()) {
+                    counts.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> symbols = new ArrayList<>(counts.keySet());
+        symbols.sort((a, b) -> counts.get(b) - counts.get(a));
+        Map<String, Integer> symbolIds = new HashMap<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            symbolIds.put(symbols.get(i), i);
+        }
+
+        Map<String, String[]> patterns = Decoder.flatten(codeTable); // the container holds items only
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            out.write(MAGIC);
+            writeVarint(out, VERSION);
+
+            writeVarint(out, symbols.size());
+            for (String symbol : symbols) {
+                String[] pattern = patterns.get(symbol);
+                if (pattern == null) {
+                    out.write(0);
+                    writeString(out, symbol);
+                } else {
+                    out.write(1);
+                    writeVarint(out, pattern.length);
+                    for (String item : pattern) {
+                        writeString(out, item);
+                    }
+                }
+            }
+
+            writeVarint(out, encodedSequences.size());
+            for (String[] sequence : encodedSequences) {
+                writeVarint(out, tokenCount(sequence));
+            }
+            for (String[] sequence : encodedSequences) {
+                for (String token : sequence) {
+                    if (!token.isEmpty()) {
+                        writeVarint(out, symbolIds.get(token));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Streams the decoded sequences, each as its list of original items, to the consumer. */
+    static void decode(File file, Consumer<String[]> consumer) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            decode(in, consumer);
+        }
+    }
+
+    static void decode(InputStream in, Consumer<String[]> consumer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) readByte(in);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an MMSC binary file");
+        }
+        int version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported MMSC binary version " + version);
+        }
+
+        // Array-indexed symbol table: symbol id -> items it expands to
+        String[][] expansions = new String[readVarint(in)][];
+        for (int i = 0; i < expansions.length; i++) {
+            int kind = readByte(in);
+            if (kind == 0) {
+                expansions[i] = new String[]{readString(in)};
+            } else {
+                String[] pattern = new String[readVarint(in)];
+                for (int j = 0; j < pattern.length; j++) {
+                    pattern[j] = readString(in);
+                }
+                expansions[i] = pattern;
+            }
+        }
+
+        int[] lengths = new int[readVarint(in)];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = readVarint(in);
+        }
+
+        List<String> items = new ArrayList<>();
+        for (int length : lengths) {
+            items.clear();
+            for (int t = 0; t < length; t++) {
+                Collections.addAll(items, expansions[readVarint(in)]);
+            }
+            consumer.accept(items.toArray(new String[0]));
+        }
+    }
+
+    private static int tokenCount(String[] sequence) {
+        int count = 0;
+        for (String token : sequence) {
+            if (!token.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        byte[] bytes = new byte[readVarint(in)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) readByte(in);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated MMSC binary file");
+        }
+        return b;
+    }
+}
@@ -0,0 +1,163 @@
+package MMSC;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Mining state of one (dataset, CTL) run, saved after every found pattern when --checkpoint is on:
+ * the patterns found so far, the reduced sequences, the random generator and the pattern length
+ * weights. A run that finds a checkpoint continues from it instead of starting over.
+ * The file starts with the elapsed mining time so it can be read without loading the whole state.
+ */
+final class Checkpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final List<String[]> patterns;
+    final int[] frequencies;
+    final List<String> sequences;
+    final Random random;
+    final double[] patternLengthWeights;
+    transient long elapsedMillis;
+
+    Checkpoint(List<String[]> patterns, int[] frequencies, List<String> sequences, Random random, double[] patternLengthWeights) {
+        this.patterns = patterns;
+        this.frequencies = frequencies;
+        this.sequences = sequences;
+        this.random = random;
+        this.patternLengthWeights = patternLengthWeights;
+    }
+
+    static File file(Config config, String datasetName, int CTL) {
+        return new File(config.outputFolder + "checkpoint_" + CTL + "_" + datasetName + ".ser");
+    }
+
+    /** Writes to a temporary file first so a crash while saving never leaves a truncated checkpoint. */
+    void save(File file, long elapsedMillis) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeLong(elapsedMillis);
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(this);
+            objects.flush();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Saves the state of a miner after a found pattern. A failed write is reported and mining goes
+     * on, the previous checkpoint staying in place.
+     */
+    static void write(File file, long startTime, List<PatternResult> found, FrequencySource source, Random random,
+                      double[] patternLengthWeights, String datasetName, int CTL) {
+        List<String[]> patterns = new ArrayList<>();
+        int[] frequencies = new int[found.size()];
+        for (int i = 0; i < found.size(); i++) {
+            patterns.add(found.get(i).pattern);
+            frequencies[i] = found.get(i).frequency;
+        }
+        try {
+            new Checkpoint(patterns, frequencies, source.sequences(), random, patternLengthWeights.clone())
+                .save(file, System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            System.err.println("Error writing checkpoint for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+        }
+    }
+
+    /** The saved state for a miner to continue from, or null if there is no usable checkpoint. */
+    static Checkpoint resume(Config config, File file, int CTL) {
+        Checkpoint checkpoint = load(file);
+        if (checkpoint != null && config.verbose) {
+            System.out.println("Resuming CTL=" + CTL + " from checkpoint with " + checkpoint.patterns.size() + " patterns");
+        }
+        return checkpoint;
+    }
+
+    /** The saved patterns as found results. */
+    List<PatternResult> results() {
+        List<PatternResult> results = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            results.add(new PatternResult(patterns.get(i), frequencies[i], patterns.get(i).length));
+        }
+        return results;
+    }
+
+    /** The saved length weights, or the given ones if the maximum pattern length has changed since. */
+    double[] patternLengthWeights(double[] current) {
+        return patternLengthWeights.length == current.length ? patternLengthWeights : current;
+    }
+
+    /** Returns the saved state, or null if there is no usable checkpoint. */
+    static Checkpoint load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            long elapsedMillis = in.readLong();
+            Checkpoint checkpoint = (Checkpoint) new ObjectInputStream(in).readObject();
+            checkpoint.elapsedMillis = elapsedMillis;
+            return checkpoint;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("Ignoring unreadable checkpoint " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Mining time already spent before the checkpoint was written, 0 if there is none. */
+    static long elapsedMillis(File file) {
+        if (!file.isFile()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** Keys made of the first keyColumns columns of every data row of a results CSV. */
+    static Set<String> completedRows(String csvFilePath, int keyColumns) throws IOException {
+        Set<String> completed = new HashSet<>();
+        for (String row : rows(csvFilePath)) {
+            String[] columns = row.split(",");
+            if (columns.length > keyColumns) {
+                completed.add(String.join(",", Arrays.copyOf(columns, keyColumns)));
+            }
+        }
+        return completed;
+    }
+
+    /** Data rows of a results CSV without the header, empty if the file does not exist. */
+    static List<String> rows(String csvFilePath) throws IOException {
+        List<String> rows = new ArrayList<>();
+        File csvFile = new File(csvFilePath);
+        if (!csvFile.isFile()) {
+            return rows;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    rows.add(line);
+                }
+            }
+        }
+        return rows;
+    }
+}
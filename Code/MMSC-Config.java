@@ -0,0 +1,355 @@
+package MMSC;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Run configuration shared by the HOA, GA and PSO miners.
+ * Values start from the defaults of the chosen algorithm, are overridden by an optional
+ * properties file (--config file) and finally by command-line options, given either as
+ * "--key value" or "--key=value". Property file keys are the option names without dashes.
+ */
+final class Config {
+    static final String USAGE =
+        "Options (all optional):\n"
+        + "  --config <file>        properties file with any of the keys below\n"
+        + "  --algorithm HOA|GA|PSO|auto|best|repair  miner to run (Main only, default HOA); auto races all\n"
+        + "                         three on every round and logs the winners to winners.csv, best runs the\n"
+        + "                         miner with the most wins logged by auto for each dataset (read from\n"
+        + "                         --output, else <folder>/AUTO/), repair replaces the most\n"
+        + "                         frequent pair up to CTL times (Re-Pair) and writes a hierarchical code table\n"
+        + "  --target <n>           with --algorithm auto, end a round once a miner's best fitness reaches n\n"
+        + "                         (frequency, or items replaced with --genome variable; 0 = no target)\n"
+        + "  --folder <dir>         input folder with .dat files\n"
+        + "  --output <dir>         output folder for encoded files and the results CSV\n"
+        + "  --ctl 0,2,4            code table lengths to mine\n"
+        + "  --maxlength <n>        longest pattern length to mine (default 4)\n"
+        + "  --index scan|suffix|flat  count by scanning the sequences, with a suffix array, or over a flat\n"
+        + "                         int array with SIMD matching (needs --add-modules jdk.incubator.vector)\n"
+        + "  --storage heap|offheap keep the corpus as strings on the heap, or as item ids in off-heap memory\n"
+        + "                         (needs --index flat, default heap)\n"
+        + "  --removal compact|tombstone  remove found patterns by compacting the sequences, or by marking\n"
+        + "                         them removed so they split their sequence (needs --index flat, default compact)\n"
+        + "  --prefilter none|bigram  answer candidates with a pair that never occurs, and pairs of two\n"
+        + "                         different items, from pair counts without a scan (default none)\n"
+        + "  --gap <g>              allow up to g skipped items between pattern items (text format only, default 0)\n"
+        + "  --evaluation batch|single  score a whole population in one pass over the corpus, or one\n"
+        + "                         candidate at a time as before (default batch); the search order is the\n"
+        + "                         same either way, so HOA only scores its initial population in one pass\n"
+        + "  --seeding <f>          share of initial candidates drawn from n-grams of the corpus, in\n"
+        + "                         proportion to their counts; the rest are random (0..1, default 0)\n"
+        + "  --moves index|graph    move items by their position in the item list, or along the pairs\n"
+        + "                         seen in the corpus, leaving out items and pairs seen once (default index)\n"
+        + "  --genome fixed|variable  search one pattern length per round, chosen by the length weights,\n"
+        + "                         or all lengths up to maxlength in one population (default fixed)\n"
+        + "  --population <n>       population / swarm size\n"
+        + "  --iterations <n>       iterations per search\n"
+        + "  --seed <n>             random seed (\"none\" for an unseeded generator)\n"
+        + "  --threads <n>          threads used to scan the corpus (1 = sequential)\n"
+        + "  --starts <k>|auto      independent searches per round with different seeds, run at once\n"
+        + "                         over the same corpus, keeping the best result (auto = one per core, default 1)\n"
+        + "  --window <n>           mine over the last n sequences of each dataset only (0 = all)\n"
+        + "  --sketch <w>[,<d>]     approximate counts with a Count-Min sketch of width w and depth d (default 4)\n"
+        + "  --budget <ms>          time budget per (dataset, CTL), checked inside the searches; the patterns\n"
+        + "                         found so far are encoded when it runs out (0 = unlimited)\n"
+        + "  --verbose true|false   print search progress (default true)\n"
+        + "  --segmentation greedy|optimal  replace patterns longest first, or split each sequence into the\n"
+        + "                         fewest codes and items by dynamic programming (default greedy)\n"
+        + "  --format text|binary   encoded output format (default text)\n"
+        + "  --archive <n>          also write a block-indexed archive with n sequences per block (0 = off)\n"
+        + "  --group true|false     mine one code table over all datasets of the folder together and encode\n"
+        + "                         each of them with it, writing the table once (default false)\n"
+        + "  --checkpoint true|false save state after every found pattern and resume finished work (default false)\n"
+        + "  --foraging, --territory, --leadership   HOA coefficients\n"
+        + "  --mutation, --tournament                GA mutation rate and tournament size\n"
+        + "  --c1, --c2, --inertia                   PSO coefficients\n";
+
+    String algorithm;
+    String folderPath = "goKrimpData/original/DS/";
+    String outputFolder;
+    String winnersFolder; // where auto logs round winners and best reads them: --output, else <folder>/AUTO/
+    int[] ctlValues = {0, 2, 4, 6, 8, 10};
+    int maxPatternLength = 4;
+    String index = "scan";
+    String storage = "heap";
+    String removal = "compact";
+    String prefilter = "none";
+    int maxGap = 0;
+    String evaluation = "batch";
+    double seeding = 0;
+    String moves = "index";
+    String genome = "fixed";
+    int populationSize = 50;
+    int maxIterations = 100;
+    Long seed = 42L;
+    int threads = 1;
+    int starts = 1;
+    int target = 0;
+    int window = 0;
+    int sketchWidth = 0; // 0 = exact counts
+    int sketchDepth = 4;
+    long timeBudgetMs = 0;
+    long sweepDeadline = 0; // end of a --sweep-budget in epoch millis, set by Sweep (0 = none)
+    boolean verbose = true;
+    boolean checkpoint = false;
+    String format = "text";
+    String segmentation = "greedy";
+    int archiveBlock = 0;
+    boolean group = false;
+
+    // HOA
+    double foragingFactor = 0.6;
+    double territoryFactor = 0.4;
+    double leadershipFactor = 0.5;
+
+    // GA
+    double mutationRate = 0.3; // 30% chance per gene
+    int tournamentSize = 3;
+
+    // PSO
+    double c1 = 2.0; // cognitive parameter
+    double c2 = 2.0; // social parameter
+    double inertia = 0.7;
+
+    private Config(String algorithm) {
+        this.algorithm = algorithm;
+        this.outputFolder = folderPath + algorithm + "/";
+        this.winnersFolder = folderPath + "AUTO/";
+        if (algorithm.equals("PSO")) {
+            populationSize = 30;
+            seed = null;
+        }
+    }
+
+    static Config defaults(String algorithm) {
+        return new Config(normalizeAlgorithm(algorithm));
+    }
+
+    /** Parses options for the Main front end, where --algorithm picks the miner. */
+    static Config parse(String[] args) {
+        Properties options = readOptions(args);
+        return fromOptions(options.getProperty("algorithm", "HOA"), options);
+    }
+
+    /** Parses options for a fixed algorithm; an --algorithm option is ignored. */
+    static Config parse(String algorithm, String[] args) {
+        return fromOptions(algorithm, readOptions(args));
+    }
+
+    /** Builds a configuration for the given algorithm from already collected options. */
+    static Config fromOptions(String algorithm, Properties options) {
+        Properties copy = new Properties();
+        copy.putAll(options);
+        copy.remove("algorithm");
+        Config config = defaults(algorithm);
+        config.apply(copy);
+        return config;
+    }
+
+    Random newRandom() {
+        return seed == null ? new Random() : new Random(seed);
+    }
+
+    /** When a (dataset, CTL) run that started at startTime has to stop searching, in epoch millis, 0 = never. */
+    long deadline(long startTime) {
+        long own = timeBudgetMs > 0 ? startTime + timeBudgetMs : 0;
+        return own == 0 ? sweepDeadline : sweepDeadline == 0 ? own : Math.min(own, sweepDeadline);
+    }
+
+    boolean budgetExceeded(long startTime) {
+        long deadline = deadline(startTime);
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
+    }
+
+    /** Collects the options of a properties file given with --config, overridden by the command line. */
+    static Properties readOptions(String[] args) {
+        Properties cli = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String key = arg.substring(2);
+            String value;
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for --" + key);
+            }
+            cli.setProperty(key, value);
+        }
+
+        Properties options = new Properties();
+        String configFile = cli.getProperty("config");
+        if (configFile != null) {
+            try (Reader reader = new FileReader(configFile)) {
+                options.load(reader);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read config file " + configFile + ": " + e.getMessage());
+            }
+        }
+        options.putAll(cli);
+        options.remove("config");
+        return options;
+    }
+
+    private void apply(Properties options) {
+        boolean outputSet = false;
+        for (String key : options.stringPropertyNames()) {
+            String value = options.getProperty(key).trim();
+            try {
+                switch (key) {
+                    case "folder": folderPath = asFolder(value); break;
+                    case "output": outputFolder = asFolder(value); outputSet = true; break;
+                    case "ctl": ctlValues = parseInts(value); break;
+                    case "maxlength":
+                        maxPatternLength = positive(key, Integer.parseInt(value));
+                        if (maxPatternLength < 2) {
+                            throw new IllegalArgumentException("maxlength must be at least 2: " + value);
+                        }
+                        break;
+                    case "index": index = choice(key, value, "scan", "suffix", "flat"); break;
+                    case "storage": storage = choice(key, value, "heap", "offheap"); break;
+                    case "removal": removal = choice(key, value, "compact", "tombstone"); break;
+                    case "prefilter": prefilter = choice(key, value, "none", "bigram"); break;
+                    case "gap": maxGap = Integer.parseInt(value); break;
+                    case "seeding":
+                        seeding = Double.parseDouble(value);
+                        if (seeding < 0 || seeding > 1) {
+                            throw new IllegalArgumentException("seeding must be between 0 and 1: " + value);
+                        }
+                        break;
+                    case "genome": genome = choice(key, value, "fixed", "variable"); break;
+                    case "moves": moves = choice(key, value, "index", "graph"); break;
+                    case "evaluation": evaluation = choice(key, value, "batch", "single"); break;
+                    case "population": populationSize = positive(key, Integer.parseInt(value)); break;
+                    case "iterations": maxIterations = positive(key, Integer.parseInt(value)); break;
+                    case "seed": seed = value.equalsIgnoreCase("none") ? null : Long.parseLong(value); break;
+                    case "threads": threads = positive(key, Integer.parseInt(value)); break;
+                    case "target": target = Integer.parseInt(value); break;
+                    case "starts":
+                        starts = value.equalsIgnoreCase("auto")
+                            ? Runtime.getRuntime().availableProcessors() : positive(key, Integer.parseInt(value));
+                        break;
+                    case "window": window = Integer.parseInt(value); break;
+                    case "sketch":
+                        int[] sketch = parseInts(value);
+                        sketchWidth = sketch[0];
+                        sketchDepth = sketch.length > 1 ? positive(key, sketch[1]) : 4;
+                        break;
+                    case "budget": timeBudgetMs = Long.parseLong(value); break;
+                    case "verbose": verbose = Boolean.parseBoolean(value); break;
+                    case "checkpoint": checkpoint = Boolean.parseBoolean(value); break;
+                    case "segmentation": segmentation = choice(key, value, "greedy", "optimal"); break;
+                    case "format": format = choice(key, value, "text", "binary"); break;
+                    case "archive": archiveBlock = Integer.parseInt(value); break;
+                    case "group": group = Boolean.parseBoolean(value); break;
+                    case "foraging": foragingFactor = Double.parseDouble(value); break;
+                    case "territory": territoryFactor = Double.parseDouble(value); break;
+                    case "leadership": leadershipFactor = Double.parseDouble(value); break;
+                    case "mutation": mutationRate = Double.parseDouble(value); break;
+                    case "tournament": tournamentSize = positive(key, Integer.parseInt(value)); break;
+                    case "c1": c1 = Double.parseDouble(value); break;
+                    case "c2": c2 = Double.parseDouble(value); break;
+                    case "inertia": inertia = Double.parseDouble(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+            }
+        }
+        if (window > 0 && sketchWidth > 0) {
+            throw new IllegalArgumentException("window and sketch cannot be combined");
+        }
+        if (maxGap > 0 && (window > 0 || sketchWidth > 0 || !index.equals("scan") || !format.equals("text"))) {
+            throw new IllegalArgumentException("gap works with the scan index and the text format only");
+        }
+        if (storage.equals("offheap") && (!index.equals("flat") || window > 0)) {
+            throw new IllegalArgumentException("offheap storage works with the flat index only");
+        }
+        if (removal.equals("tombstone") && (!index.equals("flat") || window > 0)) {
+            throw new IllegalArgumentException("tombstone removal works with the flat index only");
+        }
+        if (prefilter.equals("bigram") && (maxGap > 0 || window > 0 || sketchWidth > 0)) {
+            throw new IllegalArgumentException("bigram prefilter works with the scan, suffix and flat indexes only");
+        }
+        if (segmentation.equals("optimal") && maxGap > 0) {
+            throw new IllegalArgumentException("optimal segmentation does not work with gap");
+        }
+        if (group && (!format.equals("text") || archiveBlock > 0 || storage.equals("offheap"))) {
+            throw new IllegalArgumentException("group works with the text format and heap storage only, without archive");
+        }
+        if (algorithm.equals("REPAIR") && (maxGap > 0 || window > 0 || sketchWidth > 0 || checkpoint || starts > 1
+                || segmentation.equals("optimal"))) {
+            throw new IllegalArgumentException("repair works on the whole corpus, without gap, window, sketch, checkpoint, starts"
+                + " or optimal segmentation");
+        }
+        if (algorithm.equals("AUTO") && (checkpoint || starts > 1)) {
+            throw new IllegalArgumentException("checkpoint and starts do not work with --algorithm auto");
+        }
+        if (!outputSet) {
+            outputFolder = folderPath + algorithm + "/";
+        }
+        winnersFolder = outputSet ? outputFolder : folderPath + "AUTO/";
+    }
+
+    private static String normalizeAlgorithm(String algorithm) {
+        String name = algorithm.trim().toUpperCase();
+        if (!name.equals("HOA") && !name.equals("GA") && !name.equals("PSO") && !name.equals("AUTO") && !name.equals("BEST")
+                && !name.equals("REPAIR")) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        return name;
+    }
+
+    private static String asFolder(String path) {
+        return path.endsWith("/") ? path : path + "/";
+    }
+
+    private static int[] parseInts(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static String choice(String key, String value, String... allowed) {
+        for (String option : allowed) {
+            if (option.equalsIgnoreCase(value)) {
+                return option;
+            }
+        }
+        throw new IllegalArgumentException(key + " must be one of " + String.join(", ", allowed) + ": " + value);
+    }
+
+    private static int positive(String key, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(key + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + " folder=" + folderPath + " output=" + outputFolder
+            + " ctl=" + Arrays.toString(ctlValues) + " maxlength=" + maxPatternLength + " index=" + index
+            + (storage.equals("offheap") ? " storage=offheap" : "")
+            + (removal.equals("tombstone") ? " removal=tombstone" : "")
+            + (prefilter.equals("bigram") ? " prefilter=bigram" : "")
+            + (maxGap > 0 ? " gap=" + maxGap : "") + " evaluation=" + evaluation
+            + (seeding > 0 ? " seeding=" + seeding : "") + (moves.equals("graph") ? " moves=graph" : "")
+            + (genome.equals("variable") ? " genome=variable" : "")
+            + " population=" + populationSize
+            + " iterations=" + maxIterations + " seed=" + (seed == null ? "none" : seed)
+            + " threads=" + threads + (starts > 1 ? " starts=" + starts : "")
+            + (target > 0 ? " target=" + target : "") + (window > 0 ? " window=" + window : "")
+            + (sketchWidth > 0 ? " sketch=" + sketchWidth + "x" + sketchDepth : "")
+            + (segmentation.equals("optimal") ? " segmentation=optimal" : "") + (group ? " group" : "")
+            + " budget=" + timeBudgetMs + "ms" + (checkpoint ? " checkpoint" : "");
+    }
+}
@@ -0,0 +1,143 @@
+package MMSC;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A parsed .dat file: one whitespace-normalized sequence per line and the set of distinct items.
+ * Items are also numbered 1..k in order of first appearance, for indexes that work on integers.
+ * A corpus is read once and shared read-only by every miner working on the dataset.
+ *
+ * Loaded off-heap, the sequences are kept only as item ids in a {@link TokenBuffer} and the
+ * sequence list is a view that rebuilds each line when it is read, so the heap holds the
+ * dictionary alone.
+ */
+final class Corpus {
+    final String datasetName;
+    final File file;
+    final List<String> sequences;
+    final Set<String> uniqueItems;
+    final List<String> items; // item id - 1 -> item
+    final Map<String, Integer> itemIds;
+    final TokenBuffer tokens; // null unless loaded off-heap
+    final List<Corpus> members; // the datasets a merged corpus is made of, empty otherwise
+
+    private Corpus(File file, List<String> sequences, Map<String, Integer> itemIds, TokenBuffer tokens) {
+        this(file, sequences, itemIds, tokens, Collections.emptyList());
+    }
+
+    private Corpus(File file, List<String> sequences, Map<String, Integer> itemIds, TokenBuffer tokens, List<Corpus> members) {
+        this.datasetName = file.getName();
+        this.file = file;
+        this.uniqueItems = Collections.unmodifiableSet(new HashSet<>(itemIds.keySet()));
+        this.items = Collections.unmodifiableList(new ArrayList<>(itemIds.keySet()));
+        this.itemIds = Collections.unmodifiableMap(itemIds);
+        this.tokens = tokens;
+        this.sequences = tokens == null ? Collections.unmodifiableList(sequences) : new SequenceView();
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+    }
+
+    /** Id of an item, or 0 if it does not occur in the corpus. */
+    int id(String item) {
+        return itemIds.getOrDefault(item, 0);
+    }
+
+    String item(int id) {
+        return items.get(id - 1);
+    }
+
+    static Corpus load(File file) throws IOException {
+        return load(file, false);
+    }
+
+    static Corpus load(File file, boolean offHeap) throws IOException {
+        if (offHeap) {
+            return loadOffHeap(file);
+        }
+        List<String> sequences = new ArrayList<>();
+        Map<String, Integer> itemIds = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] items = line.trim().split("\\s+");
+                sequences.add(String.join(" ", items));
+                for (String item : items) {
+                    if (!item.isEmpty()) {
+                        itemIds.putIfAbsent(item, itemIds.size() + 1);
+                    }
+                }
+            }
+        }
+        return new Corpus(file, sequences, itemIds, null);
+    }
+
+    /**
+     * The sequences of several datasets one after the other, for mining one code table over a
+     * family of datasets (--group); encoding splits them up by member again. The file only names
+     * the group and does not have to exist.
+     */
+    static Corpus merge(File file, List<Corpus> members) {
+        List<String> sequences = new ArrayList<>();
+        Map<String, Integer> itemIds = new LinkedHashMap<>();
+        for (Corpus member : members) {
+            sequences.addAll(member.sequences);
+            for (String item : member.items) {
+                itemIds.putIfAbsent(item, itemIds.size() + 1);
+            }
+        }
+        return new Corpus(file, sequences, itemIds, null, members);
+    }
+
+    private static Corpus loadOffHeap(File file) throws IOException {
+        TokenBuffer tokens = new TokenBuffer();
+        Map<String, Integer> itemIds = new LinkedHashMap<>();
+        int[] ids = new int[64];
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int count = 0;
+                for (String item : line.trim().split("\\s+")) {
+                    if (!item.isEmpty()) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = itemIds.computeIfAbsent(item, k -> itemIds.size() + 1);
+                    }
+                }
+                tokens.add(ids, count);
+            }
+        }
+        return new Corpus(file, null, itemIds, tokens);
+    }
+
+    /** The sequences of an off-heap corpus, each line rebuilt from its ids when it is read. */
+    private final class SequenceView extends AbstractList<String> {
+        @Override
+        public String get(int index) {
+            StringBuilder line = new StringBuilder();
+            for (int i = tokens.start(index), end = tokens.end(index); i < end; i++) {
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(item(tokens.get(i)));
+            }
+            return line.toString();
+        }
+
+        @Override
+        public int size() {
+            return tokens.sequenceCount();
+        }
+    }
+}
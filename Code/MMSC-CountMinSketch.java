@@ -0,0 +1,128 @@
+package MMSC;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Approximate n-gram frequencies in fixed memory, in front of an exact source. Every n-gram of
+ * length 2 up to the maximum pattern length is hashed to a 64-bit id and counted in depth rows of
+ * width counters; a query returns the smallest of its depth counters. Patterns outside those
+ * lengths, verification and removal go to the exact source.
+ *
+ * Error bound (Cormode and Muthukrishnan): with N the total number of n-grams counted, an estimate
+ * never undercounts and exceeds the true count by at most (e / width) * N with probability at least
+ * 1 - e^-depth. A removal can join items that were not adjacent before, so the counters are rebuilt
+ * from the remaining sequences after every removed pattern and the bound holds for the current
+ * sequences. Estimates include overlapping occurrences; the miners verify the winning pattern of
+ * each search with the exact source before accepting it.
+ *
+ * Memory: the sketch itself holds 4 * width * depth bytes of counters, independent of the corpus.
+ * The sequences are kept once, by the exact source (compactly with --index flat, off the heap with
+ * --storage offheap); counting them at the start and after each removal briefly holds them as the
+ * strings of {@link #sequences()} as well.
+ */
+final class CountMinSketch implements FrequencySource {
+    static final int MIN_PATTERN_LENGTH = 2;
+
+    private final FrequencySource source;
+    private final int width;
+    private final int depth;
+    private final int maxLength;
+    private final int[][] counters;
+    private final long[] multipliers;
+    private final long[] offsets;
+
+    CountMinSketch(FrequencySource source, int width, int depth, int maxLength) {
+        this.source = source;
+        this.width = width;
+        this.depth = depth;
+        this.maxLength = maxLength;
+        this.counters = new int[depth][width];
+        this.multipliers = new long[depth];
+        this.offsets = new long[depth];
+        SplittableRandom seeds = new SplittableRandom(0x5EEDL); // fixed, so runs are reproducible
+        for (int row = 0; row < depth; row++) {
+            multipliers[row] = seeds.nextLong() | 1;
+            offsets[row] = seeds.nextLong();
+        }
+        countAll();
+    }
+
+    @Override
+    public int count(String[] pattern) {
+        if (pattern.length < MIN_PATTERN_LENGTH || pattern.length > maxLength) {
+            return source.count(pattern);
+        }
+        long id = 0;
+        for (String item : pattern) {
+            id = extend(id, item);
+        }
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row][bucket(row, id)]);
+        }
+        return estimate;
+    }
+
+    @Override
+    public int verify(String[] pattern, int estimate) {
+        return source.count(pattern);
+    }
+
+    @Override
+    public void removePattern(String[] pattern) {
+        source.removePattern(pattern);
+        for (int[] row : counters) {
+            Arrays.fill(row, 0);
+        }
+        countAll();
+    }
+
+    @Override
+    public List<String> sequences() {
+        return source.sequences();
+    }
+
+    @Override
+    public String[] sample(int length, Random random) {
+        return source.sample(length, random);
+    }
+
+    @Override
+    public int longestRepeat() {
+        return source.longestRepeat();
+    }
+
+    private void countAll() {
+        for (String sequence : source.sequences()) {
+            update(sequence.trim().split("\\s+"), 1);
+        }
+    }
+
+    private void update(String[] items, int delta) {
+        for (int start = 0; start < items.length; start++) {
+            long id = extend(0, items[start]);
+            for (int length = 2; length <= maxLength && start + length <= items.length; length++) {
+                id = extend(id, items[start + length - 1]);
+                for (int row = 0; row < depth; row++) {
+                    counters[row][bucket(row, id)] += delta;
+                }
+            }
+        }
+    }
+
+    /** Id of the n-gram extended by one item, built the same way for counting and for queries. */
+    private static long extend(long id, String item) {
+        long h = (id ^ item.hashCode()) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        return h ^ (h >>> 32);
+    }
+
+    private int bucket(int row, long id) {
+        long h = id * multipliers[row] + offsets[row];
+        return (int) ((h >>> 1) % width);
+    }
+}
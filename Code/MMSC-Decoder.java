@@ -0,0 +1,417 @@
+package MMSC;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Expands encoded_&lt;CTL&gt;_&lt;dataset&gt; files back to the original tokens and verifies that
+ * an encoding is lossless. Text files are decoded with codeTable_&lt;CTL&gt;_&lt;dataset&gt;.txt from
+ * the same folder, binary .bin files carry their own table. Decoding streams one line at a time and
+ * looks codes up in an array indexed by code value, so verification is a single pass over both files.
+ * A gapped code (see {@link Encoder}) is followed by its gap token and the items inside its gaps.
+ * Codes inside table entries, as in the hierarchical tables of {@link RePair}, are expanded
+ * when the table is loaded, so decoding itself stays one lookup per token. Files encoded in group
+ * mode (--group) have no table of their own and use codeTable_&lt;CTL&gt;_group.txt.
+ *
+ * Usage:
+ *   --encoded &lt;file&gt; [--table &lt;file&gt;] [--output &lt;file&gt;]   decode one file (to stdout by default)
+ *   --encoded &lt;file&gt; --original &lt;file.dat&gt;                 verify one file
+ *   --check &lt;outputFolder&gt; --folder &lt;datasetFolder&gt;           verify every encoded file of a run
+ */
+public class Decoder {
+    /** Longest numeric token read as a code; the encoders keep their codes this short. */
+    static final int MAX_CODE_DIGITS = 18;
+
+    private final String[][] expansions;
+    private final boolean[] gapped;
+    private final long base;
+
+    private Decoder(Map<Long, String[]> codeTable) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long code : codeTable.keySet()) {
+            min = Math.min(min, code);
+            max = Math.max(max, code);
+        }
+        base = codeTable.isEmpty() ? 0 : min;
+        expansions = new String[codeTable.isEmpty() ? 0 : Math.toIntExact(max - min + 1)][];
+        gapped = new boolean[expansions.length];
+        for (Map.Entry<Long, String[]> entry : codeTable.entrySet()) {
+            String[] pattern = entry.getValue();
+            int index = (int) (entry.getKey() - base);
+            gapped[index] = pattern.length > 0 && pattern[0].equals(Encoder.GAPPED);
+            expansions[index] = gapped[index] ? Arrays.copyOfRange(pattern, 1, pattern.length) : pattern;
+        }
+    }
+
+    /** Builds a decoder for a code table keyed by the numeric codes as written by the Encoder. */
+    static Decoder of(Map<String, String[]> codeTable) {
+        Map<Long, String[]> numeric = new HashMap<>();
+        for (Map.Entry<String, String[]> entry : flatten(codeTable).entrySet()) {
+            numeric.put(Long.parseLong(entry.getKey()), entry.getValue());
+        }
+        return new Decoder(numeric);
+    }
+
+    /** Reads "code:pattern" lines; a missing table means the file was written without codes. */
+    static Decoder load(File codeTableFile) throws IOException {
+        Map<String, String[]> codeTable = new HashMap<>();
+        if (codeTableFile.isFile()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(codeTableFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        codeTable.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim().split("\\s+"));
+                    }
+                }
+            }
+        }
+        return of(codeTable);
+    }
+
+    /**
+     * The table with every code inside an entry replaced by that entry's items, recursively, as
+     * hierarchical tables need. Codes never equal an item of the corpus, so in a flat table this
+     * changes nothing. Gapped entries only ever hold items and are kept as they are.
+     */
+    static Map<String, String[]> flatten(Map<String, String[]> codeTable) {
+        Map<String, String[]> flat = new LinkedHashMap<>();
+        for (String code : codeTable.keySet()) {
+            flatten(code, codeTable, flat, new HashSet<>());
+        }
+        return flat;
+    }
+
+    private static String[] flatten(String code, Map<String, String[]> codeTable, Map<String, String[]> flat, Set<String> open) {
+        String[] done = flat.get(code);
+        if (done != null) {
+            return done;
+        }
+        if (!open.add(code)) {
+            throw new IllegalArgumentException("Code " + code + " is part of its own expansion");
+        }
+        String[] pattern = codeTable.get(code);
+        if (pattern.length > 0 && pattern[0].equals(Encoder.GAPPED)) {
+            flat.put(code, pattern);
+            return pattern;
+        }
+        List<String> items = new ArrayList<>(pattern.length);
+        for (String token : pattern) {
+            if (codeTable.containsKey(token)) {
+                Collections.addAll(items, flatten(token, codeTable, flat, open));
+            } else {
+                items.add(token);
+            }
+        }
+        String[] expansion = items.equals(Arrays.asList(pattern)) ? pattern : items.toArray(new String[0]);
+        flat.put(code, expansion);
+        open.remove(code);
+        return expansion;
+    }
+
+    /** Appends the decoded form of one encoded line to out, tokens separated by single spaces. */
+    void decodeLine(String line, StringBuilder out) {
+        int base = out.length();
+        int length = line.length();
+        int i = 0;
+        String[] gappedPattern = null; // gapped code waiting for its gap token
+        int[] gaps = null;
+        int part = 0;
+        int fill = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+
+            if (gappedPattern != null && gaps == null) {
+                gaps = parseGaps(line.substring(start, i), gappedPattern.length);
+                append(out, base, gappedPattern[0]);
+                part = 1;
+                fill = gaps[0];
+            } else if (gaps != null) {
+                append(out, base, line, start, i); // an item inside a gap
+                fill--;
+            } else {
+                int index = lookup(line, start, i);
+                if (index < 0) {
+                    append(out, base, line, start, i);
+                } else if (gapped[index]) {
+                    gappedPattern = expansions[index];
+                } else {
+                    for (String item : expansions[index]) {
+                        append(out, base, item);
+                    }
+                }
+            }
+
+            // Emit the pattern items whose gaps are complete
+            while (gaps != null && fill == 0) {
+                append(out, base, gappedPattern[part++]);
+                if (part == gappedPattern.length) {
+                    gappedPattern = null;
+                    gaps = null;
+                } else {
+                    fill = gaps[part - 1];
+                }
+            }
+        }
+    }
+
+    private static int[] parseGaps(String token, int patternLength) {
+        String[] parts = token.split("\\.");
+        if (parts.length != patternLength - 1) {
+            throw new IllegalArgumentException("Gap token " + token + " does not fit a pattern of length " + patternLength);
+        }
+        int[] gaps = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            gaps[i] = Integer.parseInt(parts[i]);
+        }
+        return gaps;
+    }
+
+    private static void append(StringBuilder out, int base, String item) {
+        if (out.length() > base) {
+            out.append(' ');
+        }
+        out.append(item);
+    }
+
+    private static void append(StringBuilder out, int base, String line, int start, int end) {
+        if (out.length() > base) {
+            out.append(' ');
+        }
+        out.append(line, start, end);
+    }
+
+    /** Number of code indexes, for callers that look entries up with {@link #code}. */
+    int codeCount() {
+        return expansions.length;
+    }
+
+    /** Code index of the token line[start, end), or -1 for an item, so encoded lines can be read without decoding them. */
+    int code(String line, int start, int end) {
+        return lookup(line, start, end);
+    }
+
+    /** The items of a code index, null where no code has that value; a gapped entry holds only its pattern items. */
+    String[] expansion(int code) {
+        return expansions[code];
+    }
+
+    boolean gapped(int code) {
+        return gapped[code];
+    }
+
+    /**
+     * Index of a numeric code token in expansions, or -1 for an item. Codes are written without
+     * leading zeros and can run past the int range, so they are read into a long.
+     */
+    private int lookup(String line, int start, int end) {
+        if (expansions.length == 0 || end - start > MAX_CODE_DIGITS || (end - start > 1 && line.charAt(start) == '0')) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        long index = value - base;
+        return index >= 0 && index < expansions.length && expansions[(int) index] != null ? (int) index : -1;
+    }
+
+    static void decodeText(File encodedFile, File codeTableFile, Writer writer) throws IOException {
+        Decoder decoder = load(codeTableFile);
+        StringBuilder decoded = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(encodedFile), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                decoded.setLength(0);
+                decoder.decodeLine(line, decoded);
+                writer.write(decoded.append('\n').toString());
+            }
+        }
+    }
+
+    /**
+     * Compares the decoded file with the original .dat, normalized the same way the miners read it.
+     * Returns null when they match, otherwise a description of the first difference.
+     */
+    static String verify(File encodedFile, File codeTableFile, File originalFile) throws IOException {
+        try (BufferedReader original = new BufferedReader(new FileReader(originalFile), 1 << 16)) {
+            String[] mismatch = new String[1];
+            int[] lineNumber = new int[1];
+            if (encodedFile.getName().endsWith(".bin")) {
+                BinaryFormat.decode(encodedFile, items -> {
+                    if (mismatch[0] == null) {
+                        lineNumber[0]++;
+                        mismatch[0] = compare(String.join(" ", items), readNormalized(original), lineNumber[0]);
+                    }
+                });
+            } else {
+                Decoder decoder = load(codeTableFile);
+                StringBuilder decoded = new StringBuilder();
+                try (BufferedReader encoded = new BufferedReader(new FileReader(encodedFile), 1 << 16)) {
+                    String line;
+                    while (mismatch[0] == null && (line = encoded.readLine()) != null) {
+                        lineNumber[0]++;
+                        decoded.setLength(0);
+                        decoder.decodeLine(line, decoded);
+                        mismatch[0] = compare(decoded.toString(), readNormalized(original), lineNumber[0]);
+                    }
+                }
+            }
+            if (mismatch[0] == null && original.readLine() != null) {
+                mismatch[0] = "original has more than " + lineNumber[0] + " lines";
+            }
+            return mismatch[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String readNormalized(BufferedReader reader) {
+        try {
+            String line = reader.readLine();
+            return line == null ? null : String.join(" ", line.trim().split("\\s+"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String compare(String decoded, String original, int lineNumber) {
+        if (original == null) {
+            return "decoded file has more lines than the original (line " + lineNumber + ")";
+        }
+        return decoded.equals(original) ? null : "line " + lineNumber + " differs";
+    }
+
+    /** Verifies every encoded file of an output folder against the datasets it was made from. */
+    static boolean checkFolder(File outputFolder, File datasetFolder) throws IOException {
+        File[] encodedFiles = outputFolder.listFiles((dir, name) -> name.startsWith("encoded_"));
+        if (encodedFiles == null || encodedFiles.length == 0) {
+            System.err.println("No encoded files found in " + outputFolder);
+            return false;
+        }
+        boolean allValid = true;
+        for (File encodedFile : encodedFiles) {
+            File original = new File(datasetFolder, datasetName(encodedFile));
+            long startTime = System.currentTimeMillis();
+            String mismatch = original.isFile()
+                ? verify(encodedFile, codeTableFile(encodedFile), original)
+                : "original " + original + " not found";
+            long totalTime = System.currentTimeMillis() - startTime;
+            System.out.println((mismatch == null ? "OK   " : "FAIL ") + encodedFile.getName()
+                + (mismatch == null ? "" : ": " + mismatch) + " (" + totalTime + " ms)");
+            allValid &= mismatch == null;
+        }
+        return allValid;
+    }
+
+    /** encoded_&lt;CTL&gt;_&lt;dataset&gt;[.bin] -> &lt;dataset&gt; */
+    static String datasetName(File encodedFile) {
+        String name = encodedFile.getName();
+        if (name.endsWith(".bin")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        int underscore = name.indexOf('_', "encoded_".length());
+        return name.substring(underscore + 1);
+    }
+
+    /** The table of the dataset, or the table its group shares (--group) when it has none of its own. */
+    static File codeTableFile(File encodedFile) {
+        String name = encodedFile.getName().substring("encoded_".length());
+        File own = new File(encodedFile.getParentFile(), "codeTable_" + name + ".txt");
+        if (own.isFile()) {
+            return own;
+        }
+        String CTL = name.substring(0, name.indexOf('_'));
+        File shared = new File(encodedFile.getParentFile(), "codeTable_" + CTL + "_" + Encoder.GROUP_TABLE + ".txt");
+        return shared.isFile() ? shared : own;
+    }
+
+    public static void main(String[] args) {
+        Properties options;
+        try {
+            options = Config.readOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        try {
+            if (options.containsKey("check")) {
+                File datasetFolder = new File(options.getProperty("folder", Config.defaults("HOA").folderPath));
+                if (!checkFolder(new File(options.getProperty("check")), datasetFolder)) {
+                    System.exit(1);
+                }
+                return;
+            }
+
+            String encodedPath = options.getProperty("encoded");
+            if (encodedPath == null) {
+                System.err.println("Usage: --encoded <file> [--table <file>] [--output <file> | --original <file.dat>]"
+                    + " or --check <outputFolder> --folder <datasetFolder>");
+                return;
+            }
+            File encodedFile = new File(encodedPath);
+            File codeTableFile = options.containsKey("table") ? new File(options.getProperty("table")) : codeTableFile(encodedFile);
+
+            if (options.containsKey("original")) {
+                String mismatch = verify(encodedFile, codeTableFile, new File(options.getProperty("original")));
+                System.out.println(mismatch == null ? "OK: decoded output matches the original" : "FAIL: " + mismatch);
+                if (mismatch != null) {
+                    System.exit(1);
+                }
+                return;
+            }
+
+            try (Writer writer = options.containsKey("output")
+                    ? new BufferedWriter(new FileWriter(options.getProperty("output")), 1 << 16)
+                    : new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16)) {
+                if (encodedFile.getName().endsWith(".bin")) {
+                    BinaryFormat.decode(encodedFile, items -> {
+                        try {
+                            writer.write(String.join(" ", items));
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } else {
+                    decodeText(encodedFile, codeTableFile, writer);
+                }
+            }
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("Error decoding: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
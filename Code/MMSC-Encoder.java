@@ -0,0 +1,442 @@
+package MMSC;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Encodes a corpus with a code table of mined patterns, writes the encoded file, compresses it
+ * with XZ and computes the compression ratio against the original .dat file.
+ *
+ * Text format (default): encoded_&lt;CTL&gt;_&lt;dataset&gt; holds one line of whitespace-separated
+ * tokens per sequence and codeTable_&lt;CTL&gt;_&lt;dataset&gt;.txt holds "code:pattern" lines.
+ * Binary format (--format binary): encoded_&lt;CTL&gt;_&lt;dataset&gt;.bin, see {@link BinaryFormat};
+ * the code table is embedded, so the ratio is computed on the compressed container alone.
+ * With --archive the encoding is also written as a queryable {@link IndexedArchive}.
+ *
+ * With --gap g every pattern gets a second, gapped code, whose table entry starts with "~". An
+ * occurrence with skipped items is written as the gapped code, a gap token holding the number of
+ * skipped items before each further pattern item joined by dots (e.g. "1.0"), and then the skipped
+ * items themselves, which stay where they were. Occurrences without gaps use the plain code.
+ *
+ * Tables from {@link RePair} are hierarchical: an entry may contain codes of earlier entries,
+ * which {@link Decoder} expands until only items are left.
+ *
+ * With --group one table is mined over all datasets of the input folder and shared by their
+ * encoded files, see {@link #saveGroup}.
+ */
+final class Encoder {
+    static final String GAPPED = "~";
+    static final String GROUP_TABLE = "group";
+
+    private Encoder() {
+    }
+
+    static double encodeAndSave(Config config, Corpus corpus, List<String[]> patterns, int CTL) {
+        Map<String, String[]> codeTable = CTL == 0 ? new LinkedHashMap<>() : assignCodes(corpus, patterns, config.maxGap > 0);
+        List<String[]> encodedSequences = config.maxGap > 0
+            ? encodeGapped(corpus, codeTable, config.maxGap)
+            : config.segmentation.equals("optimal")
+            ? encodeOptimal(corpus.sequences, codeTable, !config.format.equals("binary"))
+            : encodeSequences(corpus.sequences, codeTable);
+        return save(config, corpus, codeTable, encodedSequences, CTL);
+    }
+
+    /**
+     * Writes an encoding made elsewhere, e.g. by {@link RePair}, whose table entries may contain
+     * earlier codes, and returns its compression ratio.
+     */
+    static double save(Config config, Corpus corpus, Map<String, String[]> codeTable, List<String[]> encodedSequences, int CTL) {
+        if (!corpus.members.isEmpty()) {
+            return saveGroup(config, corpus, codeTable, encodedSequences, CTL);
+        }
+        String outputFolder = config.outputFolder;
+        String datasetName = corpus.datasetName;
+        boolean binary = config.format.equals("binary");
+        String encodedFilePath = outputFolder + "encoded_" + CTL + "_" + datasetName + (binary ? ".bin" : "");
+        String codeTableFilePath = outputFolder + "codeTable_" + CTL + "_" + datasetName + ".txt";
+        double compressionRatio = 1.0; // Default if CTL=0 or no compression
+
+        if (binary) {
+            try {
+                BinaryFormat.write(new File(encodedFilePath), encodedSequences, codeTable);
+            } catch (IOException e) {
+                System.err.println("Error writing binary file for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+            }
+        } else {
+            try {
+                writeCodeTable(codeTableFilePath, codeTable);
+            } catch (IOException e) {
+                System.err.println("Error writing code table for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+            }
+
+            try {
+                writeEncoded(encodedFilePath, encodedSequences);
+            } catch (IOException e) {
+                System.err.println("Error writing encoded file for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+            }
+        }
+
+        if (config.archiveBlock > 0) {
+            File archiveFile = new File(outputFolder + "archive_" + CTL + "_" + datasetName + ".mmsa");
+            try {
+                IndexedArchive.write(archiveFile, encodedSequences, codeTable, config.archiveBlock);
+            } catch (IOException e) {
+                System.err.println("Error writing archive for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+            }
+        }
+
+        // Compress the encoded file
+        try {
+            String compressedFilePath = outputFolder + "zipencoded_" + CTL + "_" + datasetName + (binary ? ".bin" : "");
+            compress(encodedFilePath, compressedFilePath);
+            if (config.verbose) {
+                System.out.println("XZ compression completed successfully for CTL=" + CTL + "!");
+            }
+
+            File originalFile = corpus.file;
+            File compressedFile = new File(compressedFilePath);
+            File codeTableFile = new File(codeTableFilePath);
+
+            long originalSize = originalFile.length();
+            long compressedSize = compressedFile.length() + (CTL == 0 || binary ? 0 : codeTableFile.length());
+            compressionRatio = (compressedSize == 0) ? 1.0 : (double) originalSize / compressedSize;
+
+        } catch (IOException e) {
+            System.err.println("Error during XZ compression for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+        }
+
+        return compressionRatio;
+    }
+
+    /**
+     * Group mode (--group): the corpus is a merge of several datasets and the encoded sequences
+     * follow it, so they are split up again by member. The code table is written once as
+     * codeTable_&lt;CTL&gt;_group.txt, each member gets its own encoded and compressed file, and the
+     * ratio is that of all members together against the shared table plus all compressed files.
+     */
+    private static double saveGroup(Config config, Corpus corpus, Map<String, String[]> codeTable, List<String[]> encodedSequences, int CTL) {
+        String outputFolder = config.outputFolder;
+        String codeTableFilePath = outputFolder + "codeTable_" + CTL + "_" + GROUP_TABLE + ".txt";
+        long originalSize = 0;
+        long compressedSize = 0;
+        try {
+            writeCodeTable(codeTableFilePath, codeTable);
+            if (CTL > 0) {
+                compressedSize += new File(codeTableFilePath).length();
+            }
+            int first = 0;
+            for (Corpus member : corpus.members) {
+                List<String[]> memberSequences = encodedSequences.subList(first, first + member.sequences.size());
+                first += member.sequences.size();
+                String encodedFilePath = outputFolder + "encoded_" + CTL + "_" + member.datasetName;
+                String compressedFilePath = outputFolder + "zipencoded_" + CTL + "_" + member.datasetName;
+                writeEncoded(encodedFilePath, memberSequences);
+                compress(encodedFilePath, compressedFilePath);
+                long memberOriginal = member.file.length();
+                long memberCompressed = new File(compressedFilePath).length();
+                originalSize += memberOriginal;
+                compressedSize += memberCompressed;
+                if (config.verbose) {
+                    System.out.printf("  %s: %d -> %d bytes compressed (%.2f without the shared table)%n", member.datasetName,
+                        memberOriginal, memberCompressed, memberCompressed == 0 ? 1.0 : (double) memberOriginal / memberCompressed);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing group files for " + corpus.datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+            return 1.0;
+        }
+        return compressedSize == 0 ? 1.0 : (double) originalSize / compressedSize;
+    }
+
+    private static void writeCodeTable(String path, Map<String, String[]> codeTable) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+            for (Map.Entry<String, String[]> entry : codeTable.entrySet()) {
+                writer.write(entry.getKey() + ":" + String.join(" ", entry.getValue()) + "\n");
+            }
+        }
+    }
+
+    private static void writeEncoded(String path, List<String[]> encodedSequences) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+            for (String[] sequence : encodedSequences) {
+                writer.write(String.join(" ", sequence) + "\n");
+            }
+        }
+    }
+
+    private static void compress(String path, String compressedPath) throws IOException {
+        LZMA2Options options = new LZMA2Options();
+        options.setPreset(9);
+        try (FileInputStream in = new FileInputStream(path);
+             FileOutputStream out = new FileOutputStream(compressedPath);
+             XZOutputStream xzOut = new XZOutputStream(out, options)) {
+
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                xzOut.write(buffer, 0, len);
+            }
+        }
+    }
+
+    static Map<String, String[]> assignCodes(Corpus corpus, List<String[]> patterns) {
+        return assignCodes(corpus, patterns, false);
+    }
+
+    /**
+     * Gives every distinct pattern a numeric code above the largest numeric item of the corpus,
+     * and with gapped set a gapped code as well, assigned after all plain codes.
+     */
+    static Map<String, String[]> assignCodes(Corpus corpus, List<String[]> patterns, boolean gapped) {
+        List<String[]> distinct = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String[] pattern : patterns) {
+            if (seen.add(String.join(" ", pattern))) {
+                distinct.add(pattern);
+            }
+        }
+        List<String> codes = newCodes(corpus, gapped ? 2 * distinct.size() : distinct.size());
+        Map<String, String[]> codeTable = new LinkedHashMap<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            codeTable.put(codes.get(i), distinct.get(i));
+        }
+        if (gapped) {
+            for (int i = 0; i < distinct.size(); i++) {
+                String[] pattern = distinct.get(i);
+                String[] entry = new String[pattern.length + 1];
+                entry[0] = GAPPED;
+                System.arraycopy(pattern, 0, entry, 1, pattern.length);
+                codeTable.put(codes.get(distinct.size() + i), entry);
+            }
+        }
+        return codeTable;
+    }
+
+    /**
+     * The first count numbers above the largest numeric item of the corpus that are not items
+     * themselves. Items too long to leave room for a code the Decoder can read are left out; as
+     * they have more digits than any code, no code can equal them.
+     */
+    static List<String> newCodes(Corpus corpus, int count) {
+        long maxNumber = 0;
+        for (String item : corpus.uniqueItems) {
+            if (item.length() >= Decoder.MAX_CODE_DIGITS) {
+                continue;
+            }
+            try {
+                long num = Long.parseLong(item);
+                maxNumber = Math.max(maxNumber, num);
+            } catch (NumberFormatException e) {
+                // Not a number, skip
+            }
+        }
+
+        List<String> codes = new ArrayList<>(count);
+        long nextCode = maxNumber + 1;
+        while (codes.size() < count) {
+            if (!corpus.uniqueItems.contains(String.valueOf(nextCode))) {
+                codes.add(String.valueOf(nextCode));
+            }
+            nextCode++;
+        }
+        return codes;
+    }
+
+    /** Replaces pattern occurrences by their codes, longest patterns first. */
+    static List<String[]> encodeSequences(List<String> sequences, Map<String, String[]> codeTable) {
+        List<Map.Entry<String, String[]>> sortedPatterns = longestFirst(codeTable);
+
+        List<String[]> encodedSequences = new ArrayList<>(sequences.size());
+        for (String sequence : sequences) {
+            encodedSequences.add(encodeTokens(sequence.trim().split("\\s+"), sortedPatterns));
+        }
+        return encodedSequences;
+    }
+
+    /** The entries of the code table in the order the greedy encoding replaces them, longest pattern first. */
+    static List<Map.Entry<String, String[]>> longestFirst(Map<String, String[]> codeTable) {
+        List<Map.Entry<String, String[]>> sortedPatterns = new ArrayList<>(codeTable.entrySet());
+        sortedPatterns.sort((a, b) -> String.join(" ", b.getValue()).length() - String.join(" ", a.getValue()).length());
+        return sortedPatterns;
+    }
+
+    /** Encodes one sequence with entries already sorted by {@link #longestFirst}. */
+    static String[] encodeTokens(String[] tokens, List<Map.Entry<String, String[]>> sortedPatterns) {
+        for (Map.Entry<String, String[]> entry : sortedPatterns) {
+            tokens = replacePatternTokens(tokens, entry.getValue(), entry.getKey());
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits every sequence into the codes and items that take the least space (--segmentation
+     * optimal): the fewest characters with characters set, as the text format writes them, else the
+     * fewest tokens, as the binary format stores one symbol per token. Working back from the end of
+     * a sequence, the best encoding of each suffix is one item or one pattern starting there,
+     * followed by the best encoding of the rest. The patterns starting at a position are found by
+     * walking a trie of the table, so a sequence costs its length times the longest pattern.
+     * On ties a pattern beats an item and a longer pattern a shorter one.
+     */
+    static List<String[]> encodeOptimal(List<String> sequences, Map<String, String[]> codeTable, boolean characters) {
+        TrieNode root = new TrieNode();
+        for (Map.Entry<String, String[]> entry : codeTable.entrySet()) {
+            TrieNode node = root;
+            for (String item : entry.getValue()) {
+                node = node.children.computeIfAbsent(item, k -> new TrieNode());
+            }
+            if (node.code == null) {
+                node.code = entry.getKey();
+            }
+        }
+
+        List<String[]> encodedSequences = new ArrayList<>(sequences.size());
+        for (String sequence : sequences) {
+            String[] tokens = sequence.trim().split("\\s+");
+            int n = tokens.length;
+            long[] cost = new long[n + 1]; // size of the best encoding of tokens[i..n)
+            int[] taken = new int[n + 1]; // items covered by the first token of that encoding
+            String[] codes = new String[n + 1]; // its code, null for an item
+            for (int i = n - 1; i >= 0; i--) {
+                cost[i] = cost[i + 1] + (characters ? tokens[i].length() + 1 : 1);
+                taken[i] = 1;
+                TrieNode node = root;
+                for (int j = i; j < n && (node = node.children.get(tokens[j])) != null; j++) {
+                    if (node.code == null) {
+                        continue;
+                    }
+                    long withCode = cost[j + 1] + (characters ? node.code.length() + 1 : 1);
+                    if (withCode <= cost[i]) {
+                        cost[i] = withCode;
+                        taken[i] = j - i + 1;
+                        codes[i] = node.code;
+                    }
+                }
+            }
+            List<String> encoded = new ArrayList<>();
+            for (int i = 0; i < n; i += taken[i]) {
+                encoded.add(codes[i] != null ? codes[i] : tokens[i]);
+            }
+            encodedSequences.add(encoded.toArray(new String[0]));
+        }
+        return encodedSequences;
+    }
+
+    /** A node of the pattern trie used by {@link #encodeOptimal}, holding the code of the pattern ending here. */
+    private static final class TrieNode {
+        final Map<String, TrieNode> children = new HashMap<>();
+        String code;
+    }
+
+    /**
+     * Replaces gap-constrained occurrences, longest patterns first, matched with {@link GapMatcher}.
+     * Items already taken by an occurrence, including its skipped items, are not matched again.
+     */
+    static List<String[]> encodeGapped(Corpus corpus, Map<String, String[]> codeTable, int maxGap) {
+        Map<String, String> gappedCodes = new HashMap<>();
+        List<Map.Entry<String, String[]>> sortedPatterns = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : codeTable.entrySet()) {
+            String[] pattern = entry.getValue();
+            if (pattern[0].equals(GAPPED)) {
+                gappedCodes.put(String.join(" ", Arrays.copyOfRange(pattern, 1, pattern.length)), entry.getKey());
+            } else {
+                sortedPatterns.add(entry);
+            }
+        }
+        sortedPatterns.sort((a, b) -> String.join(" ", b.getValue()).length() - String.join(" ", a.getValue()).length());
+        List<int[]> patternIds = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : sortedPatterns) {
+            int[] ids = new int[entry.getValue().length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = corpus.id(entry.getValue()[i]);
+            }
+            patternIds.add(ids);
+        }
+
+        List<String[]> encodedSequences = new ArrayList<>(corpus.sequences.size());
+        for (String sequence : corpus.sequences) {
+            String[] tokens = sequence.trim().split("\\s+");
+            int[] ids = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                ids[i] = corpus.id(tokens[i]);
+            }
+            String[][] headers = new String[tokens.length][];
+            boolean[] consumed = new boolean[tokens.length];
+
+            for (int p = 0; p < patternIds.size(); p++) {
+                int[] pattern = patternIds.get(p);
+                int[] matched = new int[pattern.length];
+                for (int i = 0; i < ids.length; i++) {
+                    if (!GapMatcher.match(ids, i, pattern, maxGap, matched)) {
+                        continue;
+                    }
+                    String code = sortedPatterns.get(p).getKey();
+                    int last = matched[pattern.length - 1];
+                    if (last - matched[0] == pattern.length - 1) {
+                        headers[i] = new String[]{code};
+                    } else {
+                        StringBuilder gapToken = new StringBuilder();
+                        for (int j = 1; j < matched.length; j++) {
+                            gapToken.append(j > 1 ? "." : "").append(matched[j] - matched[j - 1] - 1);
+                        }
+                        headers[i] = new String[]{gappedCodes.get(String.join(" ", sortedPatterns.get(p).getValue())), gapToken.toString()};
+                    }
+                    for (int position : matched) {
+                        consumed[position] = true;
+                    }
+                    for (int position = matched[0]; position <= last; position++) {
+                        ids[position] = -1; // taken, the skipped items stay as they are
+                    }
+                    i = last;
+                }
+            }
+
+            List<String> result = new ArrayList<>(tokens.length);
+            for (int i = 0; i < tokens.length; i++) {
+                if (headers[i] != null) {
+                    Collections.addAll(result, headers[i]);
+                } else if (!consumed[i]) {
+                    result.add(tokens[i]);
+                }
+            }
+            encodedSequences.add(result.toArray(new String[0]));
+        }
+        return encodedSequences;
+    }
+
+    private static String[] replacePatternTokens(String[] tokens, String[] patternTokens, String code) {
+        List<String> result = new ArrayList<>(tokens.length);
+        int i = 0;
+
+        while (i < tokens.length) {
+            if (i <= tokens.length - patternTokens.length && isContiguousMatch(tokens, i, patternTokens)) {
+                result.add(code);
+                i += patternTokens.length;
+            } else {
+                result.add(tokens[i]);
+                i++;
+            }
+        }
+
+        return result.toArray(new String[0]);
+    }
+
+    private static boolean isContiguousMatch(String[] tokens, int start, String[] pattern) {
+        if (start + pattern.length > tokens.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (!tokens[start + i].equals(pattern[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package MMSC;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fitness of the candidates of one search, with every count cached until {@link #clear}, which
+ * a miner calls whenever its frequency source changes. A candidate's fitness is its count, or
+ * with --genome variable the score of its best prefix (see {@link VariableLength}). Counts missing
+ * from the cache are taken in one batch.
+ */
+final class Evaluator {
+    private final boolean variable;
+    private final Map<String, Integer> cache = new HashMap<>();
+
+    Evaluator(Config config) {
+        this.variable = config.genome.equals("variable");
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    int fitness(FrequencySource source, String[] candidate) {
+        return fitness(source, new String[][]{candidate})[0];
+    }
+
+    int[] fitness(FrequencySource source, String[][] candidates) {
+        String[][][] counted = new String[candidates.length][][];
+        Map<String, String[]> missing = new LinkedHashMap<>();
+        for (int c = 0; c < candidates.length; c++) {
+            counted[c] = variable ? VariableLength.prefixes(candidates[c]) : new String[][]{candidates[c]};
+            for (String[] pattern : counted[c]) {
+                String key = String.join(" ", pattern);
+                if (!cache.containsKey(key)) {
+                    missing.putIfAbsent(key, pattern);
+                }
+            }
+        }
+        count(source, missing);
+        int[] fitness = new int[candidates.length];
+        for (int c = 0; c < candidates.length; c++) {
+            int[] counts = cached(counted[c]);
+            fitness[c] = variable ? VariableLength.fitness(counts) : counts[0];
+        }
+        return fitness;
+    }
+
+    /** The best prefix of a variable-length candidate and its count, null if it has none that occurs. */
+    PatternResult bestPrefix(FrequencySource source, String[] genome) {
+        if (Arrays.asList(genome).contains(null)) {
+            return null;
+        }
+        String[][] prefixes = VariableLength.prefixes(genome);
+        Map<String, String[]> missing = new LinkedHashMap<>();
+        for (String[] prefix : prefixes) {
+            String key = String.join(" ", prefix);
+            if (!cache.containsKey(key)) {
+                missing.put(key, prefix);
+            }
+        }
+        count(source, missing);
+        int[] counts = cached(prefixes);
+        int best = VariableLength.best(counts);
+        return counts[best] > 0 ? new PatternResult(prefixes[best], counts[best], prefixes[best].length) : null;
+    }
+
+    private void count(FrequencySource source, Map<String, String[]> missing) {
+        if (missing.size() == 1) {
+            Map.Entry<String, String[]> only = missing.entrySet().iterator().next();
+            cache.put(only.getKey(), source.count(only.getValue()));
+        } else if (!missing.isEmpty()) {
+            int[] counts = source.evaluateBatch(missing.values().toArray(new String[0][]));
+            int i = 0;
+            for (String key : missing.keySet()) {
+                cache.put(key, counts[i++]);
+            }
+        }
+    }
+
+    private int[] cached(String[][] patterns) {
+        int[] counts = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            counts[i] = cache.get(String.join(" ", patterns[i]));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,119 @@
+package MMSC;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pattern frequencies over the sequences a miner is working on. The miners query it for the
+ * fitness of candidate patterns and remove each accepted pattern from it, so the next search
+ * only sees what is left to compress.
+ */
+interface FrequencySource {
+    /** Random positions tried by {@link #sample} before it gives up. */
+    int SAMPLE_ATTEMPTS = 32;
+
+    /** Number of occurrences of the pattern in the current sequences. */
+    int count(String[] pattern);
+
+    /**
+     * Counts of several patterns, in the order given, as count would return them one by one.
+     * Sources that scan the corpus override this to take all counts in a single pass.
+     */
+    default int[] evaluateBatch(String[][] patterns) {
+        int[] counts = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            counts[i] = count(patterns[i]);
+        }
+        return counts;
+    }
+
+    /**
+     * Exact frequency of a pattern chosen by a search, given the count the search saw.
+     * Approximate sources rescan; exact sources return the estimate unchanged.
+     */
+    default int verify(String[] pattern, int estimate) {
+        return estimate;
+    }
+
+    /** Removes every non-overlapping occurrence of the pattern from the current sequences. */
+    void removePattern(String[] pattern);
+
+    /** The current sequences, as saved in checkpoints. */
+    List<String> sequences();
+
+    /**
+     * A contiguous pattern of the given length taken from a random position of the current
+     * sequences, every position equally likely, so patterns come up in proportion to their counts.
+     * Null if the source cannot sample or no tried position had room for the length.
+     */
+    default String[] sample(int length, Random random) {
+        return null;
+    }
+
+    /**
+     * A sampled pattern to seed an initial candidate with, for the given share of them (--seeding),
+     * else null, in which case the search draws the candidate at random.
+     */
+    default String[] seed(int length, double share, Random random) {
+        if (share <= 0 || random.nextDouble() >= share) {
+            return null;
+        }
+        return sample(length, random);
+    }
+
+    /** {@link #sample} over item ids with 0 separators, as kept by the integer-based sources. */
+    static String[] sampleIds(Corpus corpus, int[] text, int length, Random random) {
+        if (text.length == 0) {
+            return null;
+        }
+        for (int attempt = 0; attempt < SAMPLE_ATTEMPTS; attempt++) {
+            int start = random.nextInt(text.length);
+            int end = start;
+            while (end < text.length && end - start < length && text[end] > 0) {
+                end++;
+            }
+            if (end - start == length) {
+                String[] pattern = new String[length];
+                for (int i = 0; i < length; i++) {
+                    pattern[i] = corpus.item(text[start + i]);
+                }
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    /** Length of the longest pattern that can occur more than once, if the source knows it. */
+    default int longestRepeat() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * The source selected by the configuration: a sliding window with --window, gap-constrained
+     * matching with --gap, a suffix array with --index suffix, a flat token array with --index flat,
+     * else a full scan; behind a {@link CountMinSketch} with --sketch or a {@link BigramFilter} with
+     * --prefilter bigram.
+     */
+    static FrequencySource create(Config config, Corpus corpus, List<String> sequences, ForkJoinPool scanPool) {
+        if (config.window > 0) {
+            return SlidingWindowIndex.of(sequences, config.window, config.maxPatternLength);
+        }
+        if (config.maxGap > 0) {
+            return new GapMatcher(corpus, sequences, config.maxGap);
+        }
+        FrequencySource source;
+        if (config.index.equals("suffix")) {
+            source = new SuffixArrayIndex(corpus, sequences);
+        } else if (config.index.equals("flat")) {
+            source = new TokenStore(corpus, sequences, config.removal.equals("tombstone"));
+        } else {
+            source = new SequenceScan(sequences, scanPool);
+        }
+        if (config.sketchWidth > 0) {
+            return new CountMinSketch(source, config.sketchWidth, config.sketchDepth, config.maxPatternLength);
+        }
+        return config.prefilter.equals("bigram") ? new BigramFilter(source, corpus) : source;
+    }
+}
@@ -0,0 +1,191 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gap-constrained pattern counts: an occurrence may skip up to maxGap items between two consecutive
+ * pattern items, but never crosses the end of a sequence. Occurrences are taken left to right within
+ * a sequence and do not share positions; with maxGap 0 this is the contiguous count of a scan.
+ *
+ * Sequences are stored as item ids (see {@link Corpus#id(String)}) concatenated with 0 separators,
+ * and every item keeps the sorted list of its positions. A query only visits the positions of the
+ * pattern's first item and looks at most maxGap + 1 positions ahead for each further item, so its
+ * cost depends on how often the first item occurs rather than on the corpus size.
+ */
+final class GapMatcher implements FrequencySource {
+    private final Corpus corpus;
+    private final int maxGap;
+    private final List<int[]> sequences = new ArrayList<>();
+    private int[] text;
+    private int[][] positions; // item id -> sorted positions in text
+
+    GapMatcher(Corpus corpus, List<String> sequences, int maxGap) {
+        this.corpus = corpus;
+        this.maxGap = maxGap;
+        for (String sequence : sequences) {
+            String[] items = sequence.trim().split("\\s+");
+            int[] ids = new int[items.length];
+            for (int i = 0; i < items.length; i++) {
+                ids[i] = corpus.id(items[i]);
+            }
+            this.sequences.add(ids);
+        }
+        build();
+    }
+
+    @Override
+    public int count(String[] pattern) {
+        int[] ids = ids(pattern);
+        if (ids == null) {
+            return 0;
+        }
+        int[] matched = new int[ids.length];
+        int count = 0;
+        int nextFree = 0;
+        for (int start : positions[ids[0]]) {
+            if (start >= nextFree && match(text, start, ids, maxGap, matched)) {
+                count++;
+                nextFree = matched[ids.length - 1] + 1;
+            }
+        }
+        return count;
+    }
+
+    /** Removes the matched items of every occurrence; the items in its gaps stay in the sequence. */
+    @Override
+    public void removePattern(String[] pattern) {
+        int[] ids = ids(pattern);
+        if (ids == null) {
+            return;
+        }
+        int[] matched = new int[ids.length];
+        boolean changed = false;
+        for (int s = sequences.size() - 1; s >= 0; s--) {
+            int[] sequence = sequences.get(s);
+            boolean[] removed = new boolean[sequence.length];
+            int removedCount = 0;
+            for (int i = 0; i < sequence.length; i++) {
+                if (sequence[i] == ids[0] && match(sequence, i, ids, maxGap, matched)) {
+                    for (int position : matched) {
+                        removed[position] = true;
+                    }
+                    removedCount += ids.length;
+                    i = matched[ids.length - 1];
+                }
+            }
+            if (removedCount == 0) {
+                continue;
+            }
+            changed = true;
+            int[] remaining = new int[sequence.length - removedCount];
+            int length = 0;
+            for (int i = 0; i < sequence.length; i++) {
+                if (!removed[i]) {
+                    remaining[length++] = sequence[i];
+                }
+            }
+            if (length == 0) {
+                sequences.remove(s);
+            } else {
+                sequences.set(s, remaining);
+            }
+        }
+        if (changed) {
+            build();
+        }
+    }
+
+    @Override
+    public String[] sample(int length, Random random) {
+        return FrequencySource.sampleIds(corpus, text, length, random);
+    }
+
+    @Override
+    public List<String> sequences() {
+        List<String> result = new ArrayList<>(sequences.size());
+        StringBuilder line = new StringBuilder();
+        for (int[] sequence : sequences) {
+            line.setLength(0);
+            for (int id : sequence) {
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(corpus.item(id));
+            }
+            result.add(line.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Matches the pattern with its first item at start, allowing up to maxGap skipped items before
+     * each further item. Items of value 0 or less are barriers that neither match nor can be skipped.
+     * On success the matched positions are stored in matched, earliest embedding first.
+     */
+    static boolean match(int[] items, int start, int[] pattern, int maxGap, int[] matched) {
+        if (items[start] != pattern[0]) {
+            return false;
+        }
+        matched[0] = start;
+        return extend(items, 1, pattern, maxGap, matched);
+    }
+
+    private static boolean extend(int[] items, int index, int[] pattern, int maxGap, int[] matched) {
+        if (index == pattern.length) {
+            return true;
+        }
+        int from = matched[index - 1] + 1;
+        int to = Math.min(items.length - 1, from + maxGap);
+        for (int position = from; position <= to && items[position] > 0; position++) {
+            if (items[position] == pattern[index]) {
+                matched[index] = position;
+                if (extend(items, index + 1, pattern, maxGap, matched)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int[] ids(String[] pattern) {
+        int[] ids = new int[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            ids[i] = corpus.id(pattern[i]);
+            if (ids[i] == 0) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private void build() {
+        int n = 0;
+        for (int[] sequence : sequences) {
+            n += sequence.length + 1;
+        }
+        text = new int[n];
+        int[] counts = new int[corpus.items.size() + 1];
+        int position = 0;
+        for (int[] sequence : sequences) {
+            System.arraycopy(sequence, 0, text, position, sequence.length);
+            position += sequence.length + 1; // separator 0
+            for (int id : sequence) {
+                counts[id]++;
+            }
+        }
+        positions = new int[counts.length][];
+        for (int id = 0; id < counts.length; id++) {
+            positions[id] = new int[counts[id]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i++) {
+            int id = text[i];
+            if (id > 0) {
+                positions[id][counts[id]++] = i;
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package MMSC;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Encoded corpus split into independently XZ-compressed blocks, so single sequences and pattern
+ * counts can be read without decompressing the whole archive.
+ *
+ * Layout: "MMSA", version, the code table, the number of sequences per block and in total, then
+ * for each block its sequence count, a 64-bit item signature and its compressed length, followed
+ * by the blocks themselves. A block holds encoded text lines as in the text format. The signature
+ * has bit (hash(item) &amp; 63) set for every item of the decoded block, which lets
+ * {@link #count(String[])} skip blocks that cannot contain the pattern. The blocks it does read
+ * are matched on their encoded lines through the code table, without decoding them to strings.
+ *
+ * Usage: --archive &lt;file&gt; (--fetch &lt;sequence index&gt; | --count "item item ...")
+ */
+public class IndexedArchive implements Closeable {
+    static final byte[] MAGIC = {'M', 'M', 'S', 'A'};
+    static final int VERSION = 1;
+
+    private final RandomAccessFile file;
+    private final Decoder decoder;
+    private final int blockSize;
+    private final int sequenceCount;
+    private final int[] blockSequences;
+    private final long[] blockSignatures;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private int cachedBlock = -1;
+    private List<String[]> cachedSequences;
+
+    private IndexedArchive(RandomAccessFile file) throws IOException {
+        this.file = file;
+        DataInputStream in = new DataInputStream(new RandomAccessInputStream(file));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an MMSC archive");
+        }
+        int version = BinaryFormat.readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported MMSC archive version " + version);
+        }
+
+        Map<String, String[]> codeTable = new LinkedHashMap<>();
+        int codeCount = BinaryFormat.readVarint(in);
+        for (int i = 0; i < codeCount; i++) {
+            String code = in.readUTF();
+            String[] pattern = new String[BinaryFormat.readVarint(in)];
+            for (int j = 0; j < pattern.length; j++) {
+                pattern[j] = in.readUTF();
+            }
+            codeTable.put(code, pattern);
+        }
+        decoder = Decoder.of(codeTable);
+
+        blockSize = BinaryFormat.readVarint(in);
+        sequenceCount = BinaryFormat.readVarint(in);
+        int blockCount = BinaryFormat.readVarint(in);
+        blockSequences = new int[blockCount];
+        blockSignatures = new long[blockCount];
+        blockLengths = new int[blockCount];
+        for (int b = 0; b < blockCount; b++) {
+            blockSequences[b] = BinaryFormat.readVarint(in);
+            blockSignatures[b] = in.readLong();
+            blockLengths[b] = BinaryFormat.readVarint(in);
+        }
+        blockOffsets = new long[blockCount];
+        long offset = file.getFilePointer();
+        for (int b = 0; b < blockCount; b++) {
+            blockOffsets[b] = offset;
+            offset += blockLengths[b];
+        }
+    }
+
+    static IndexedArchive open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            return new IndexedArchive(file);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    static void write(File path, List<String[]> encodedSequences, Map<String, String[]> codeTable,
+                      int blockSize) throws IOException {
+        Decoder decoder = Decoder.of(codeTable);
+        List<byte[]> blocks = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<Long> signatures = new ArrayList<>();
+        LZMA2Options options = new LZMA2Options();
+        options.setPreset(9);
+
+        StringBuilder decoded = new StringBuilder();
+        for (int start = 0; start < encodedSequences.size(); start += blockSize) {
+            int end = Math.min(start + blockSize, encodedSequences.size());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long signature = 0;
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new XZOutputStream(bytes, options), StandardCharsets.UTF_8))) {
+                for (int i = start; i < end; i++) {
+                    String line = String.join(" ", encodedSequences.get(i));
+                    writer.write(line);
+                    writer.write('\n');
+                    decoded.setLength(0);
+                    decoder.decodeLine(line, decoded);
+                    for (String item : decoded.toString().split(" ")) {
+                        signature |= signatureBit(item);
+                    }
+                }
+            }
+            blocks.add(bytes.toByteArray());
+            counts.add(end - start);
+            signatures.add(signature);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.write(MAGIC);
+            BinaryFormat.writeVarint(out, VERSION);
+            BinaryFormat.writeVarint(out, codeTable.size());
+            for (Map.Entry<String, String[]> entry : codeTable.entrySet()) {
+                out.writeUTF(entry.getKey());
+                BinaryFormat.writeVarint(out, entry.getValue().length);
+                for (String item : entry.getValue()) {
+                    out.writeUTF(item);
+                }
+            }
+            BinaryFormat.writeVarint(out, blockSize);
+            BinaryFormat.writeVarint(out, encodedSequences.size());
+            BinaryFormat.writeVarint(out, blocks.size());
+            for (int b = 0; b < blocks.size(); b++) {
+                BinaryFormat.writeVarint(out, counts.get(b));
+                out.writeLong(signatures.get(b));
+                BinaryFormat.writeVarint(out, blocks.get(b).length);
+            }
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+        }
+    }
+
+    int sequenceCount() {
+        return sequenceCount;
+    }
+
+    /** Returns sequence i with codes expanded to the original items. */
+    String[] fetch(int index) throws IOException {
+        if (index < 0 || index >= sequenceCount) {
+            throw new IndexOutOfBoundsException("Sequence " + index + " of " + sequenceCount);
+        }
+        int block = index / blockSize;
+        return readBlock(block).get(index - block * blockSize);
+    }
+
+    /** Counts non-overlapping contiguous occurrences of the pattern, as the miners do. */
+    long count(String[] pattern) throws IOException {
+        long required = 0;
+        for (String item : pattern) {
+            required |= signatureBit(item);
+        }
+        if (pattern.length == 0) {
+            return 0;
+        }
+        // The items of the pattern become ids 1..k and every other item 0; table entries are
+        // translated once, so a code costs one array lookup per item it stands for
+        List<String> items = new ArrayList<>();
+        int[] ids = new int[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            if (!items.contains(pattern[i])) {
+                items.add(pattern[i]);
+            }
+            ids[i] = items.indexOf(pattern[i]) + 1;
+        }
+        int[][] codeIds = new int[decoder.codeCount()][];
+        for (int code = 0; code < codeIds.length; code++) {
+            String[] expansion = decoder.expansion(code);
+            if (expansion != null && !decoder.gapped(code)) {
+                codeIds[code] = new int[expansion.length];
+                for (int i = 0; i < expansion.length; i++) {
+                    codeIds[code][i] = items.indexOf(expansion[i]) + 1;
+                }
+            }
+        }
+
+        LineMatcher matcher = new LineMatcher(ids);
+        for (int b = 0; b < blockOffsets.length; b++) {
+            if ((blockSignatures[b] & required) != required) {
+                continue;
+            }
+            for (String line : readLines(b)) {
+                matchLine(line, items, codeIds, matcher);
+            }
+        }
+        return matcher.count;
+    }
+
+    /** Feeds the items of one encoded line to the matcher; a line with a gapped code is decoded first. */
+    private void matchLine(String line, List<String> items, int[][] codeIds, LineMatcher matcher) {
+        long before = matcher.count;
+        matcher.startLine();
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+            int code = decoder.code(line, start, i);
+            if (code < 0) {
+                matcher.add(itemId(items, line, start, i));
+            } else if (codeIds[code] != null) {
+                for (int id : codeIds[code]) {
+                    matcher.add(id);
+                }
+            } else {
+                // A gapped code interleaves its items with the gap tokens, left to the decoder
+                matcher.count = before;
+                matcher.startLine();
+                StringBuilder decoded = new StringBuilder();
+                decoder.decodeLine(line, decoded);
+                for (String item : decoded.toString().split(" ")) {
+                    matcher.add(items.indexOf(item) + 1);
+                }
+                return;
+            }
+        }
+    }
+
+    private static int itemId(List<String> items, String line, int start, int end) {
+        for (int k = 0; k < items.size(); k++) {
+            String item = items.get(k);
+            if (item.length() == end - start && line.regionMatches(start, item, 0, end - start)) {
+                return k + 1;
+            }
+        }
+        return 0;
+    }
+
+    private List<String[]> readBlock(int block) throws IOException {
+        if (block == cachedBlock) {
+            return cachedSequences;
+        }
+        List<String[]> sequences = new ArrayList<>(blockSequences[block]);
+        StringBuilder decoded = new StringBuilder();
+        for (String line : readLines(block)) {
+            decoded.setLength(0);
+            decoder.decodeLine(line, decoded);
+            sequences.add(decoded.length() == 0 ? new String[0] : decoded.toString().split(" "));
+        }
+        cachedBlock = block;
+        cachedSequences = sequences;
+        return sequences;
+    }
+
+    /** The encoded lines of a block, codes not yet expanded. */
+    private List<String> readLines(int block) throws IOException {
+        byte[] compressed = new byte[blockLengths[block]];
+        file.seek(blockOffsets[block]);
+        file.readFully(compressed);
+
+        List<String> lines = new ArrayList<>(blockSequences[block]);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new XZInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Non-overlapping occurrences of a pattern of item ids in a stream of them, taken leftmost
+     * first as the miners count them. Only the last pattern-length ids are kept.
+     */
+    private static final class LineMatcher {
+        private final int[] pattern;
+        private final int[] window;
+        private int seen;
+        private int nextFree; // first position a new occurrence may start at
+        long count;
+
+        LineMatcher(int[] pattern) {
+            this.pattern = pattern;
+            this.window = new int[pattern.length];
+        }
+
+        void startLine() {
+            seen = 0;
+            nextFree = 0;
+        }
+
+        void add(int id) {
+            window[seen % window.length] = id;
+            seen++;
+            int start = seen - pattern.length;
+            if (start < nextFree) {
+                return;
+            }
+            for (int k = 0; k < pattern.length; k++) {
+                if (window[(start + k) % window.length] != pattern[k]) {
+                    return;
+                }
+            }
+            count++;
+            nextFree = seen;
+        }
+    }
+
+    private static long signatureBit(String item) {
+        return 1L << (item.hashCode() & 63);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /** Reads the header through the file pointer of a RandomAccessFile. */
+    private static final class RandomAccessInputStream extends InputStream {
+        private final RandomAccessFile file;
+
+        RandomAccessInputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return file.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return file.read(buffer, offset, length);
+        }
+    }
+
+    public static void main(String[] args) {
+        Properties options;
+        try {
+            options = Config.readOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        String path = options.getProperty("archive");
+        if (path == null || !(options.containsKey("fetch") || options.containsKey("count"))) {
+            System.err.println("Usage: --archive <file> (--fetch <sequence index> | --count \"item item ...\")");
+            return;
+        }
+
+        try (IndexedArchive archive = open(new File(path))) {
+            long startTime = System.currentTimeMillis();
+            if (options.containsKey("fetch")) {
+                System.out.println(String.join(" ", archive.fetch(Integer.parseInt(options.getProperty("fetch")))));
+            } else {
+                String[] pattern = options.getProperty("count").trim().split("\\s+");
+                System.out.println("Occurrences of " + String.join(" ", pattern) + ": " + archive.count(pattern));
+            }
+            System.err.println("Query time: " + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error querying archive " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package MMSC;
+
+/**
+ * Command-line front end that picks the miner with --algorithm and passes every other
+ * option on to it, e.g. {@code --algorithm GA --ctl 2,4 --population 80 --threads 4}.
+ * See {@link Config} for the full list of options.
+ */
+public class Main {
+    public static void main(String[] args) {
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(Config.USAGE);
+            return;
+        }
+
+        Pipeline.run(config);
+    }
+}
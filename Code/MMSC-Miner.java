@@ -0,0 +1,32 @@
+package MMSC;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A pattern miner bound to one corpus. Each call to {@link #mine(int)} starts from the
+ * original sequences, so the same miner can be run for several CTL values in turn.
+ */
+interface Miner {
+    /** Mines up to CTL patterns, writes the encoded files and returns the compression ratio. */
+    double mine(int CTL);
+
+    /** Whether the time budget ran out during the last {@link #mine(int)}, which then encoded the patterns found so far. */
+    boolean budgetHit();
+
+    static Miner create(Config config, Corpus corpus, ForkJoinPool scanPool) {
+        switch (config.algorithm) {
+            case "GA":
+                return new GA(config, corpus, scanPool);
+            case "PSO":
+                return new PSO(config, corpus, scanPool);
+            case "AUTO":
+                return new Portfolio(config, corpus, scanPool);
+            case "BEST":
+                return Portfolio.best(config, corpus, scanPool);
+            case "REPAIR":
+                return new RePair(config, corpus);
+            default:
+                return new HOA(config, corpus, scanPool);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * The independent searches of one miner for --starts. Every round runs all of them at once over
+ * the same frequency source, which nothing changes until the round is over, and keeps the result
+ * that replaces the most items. Ties go to the earliest search so the choice does not depend on
+ * which search finishes first.
+ */
+final class MultiStart {
+    /** One search of a round over the round's frequency source and items, stopping at the deadline (0 = none). */
+    interface Search {
+        PatternResult find(FrequencySource source, SuccessorGraph.SearchItems items, long deadline, int patternSize);
+    }
+
+    private final List<Search> searches = new ArrayList<>();
+    private final ForkJoinPool pool;
+
+    /**
+     * The miner's own search, then count - 1 others made by create, each with a generator seeded
+     * from the miner's so that a seeded run stays reproducible.
+     */
+    MultiStart(Search own, int count, Random random, Function<Random, Search> create) {
+        searches.add(own);
+        for (int k = 1; k < count; k++) {
+            searches.add(create.apply(new Random(random.nextLong())));
+        }
+        pool = new ForkJoinPool(count);
+    }
+
+    PatternResult find(FrequencySource source, SuccessorGraph.SearchItems items, long deadline, int patternSize) {
+        List<ForkJoinTask<PatternResult>> tasks = new ArrayList<>();
+        for (Search search : searches) {
+            tasks.add(pool.submit(() -> search.find(source, items, deadline, patternSize)));
+        }
+        PatternResult best = null;
+        for (ForkJoinTask<PatternResult> task : tasks) {
+            PatternResult result = task.join();
+            if (result != null && !Arrays.asList(result.pattern).contains(null) && (best == null || result.score() > best.score())) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incrementally maintained counts of every contiguous n-gram of the configured lengths.
+ * Sequences are added (and, for a sliding window, removed) one at a time, so the counts always
+ * describe the current input without re-reading it. Counts include overlapping occurrences.
+ */
+final class NGramIndex {
+    private final int minLength;
+    private final int maxLength;
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    NGramIndex(int minLength, int maxLength) {
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    void add(String[] items) {
+        update(items, 1);
+    }
+
+    /** Takes back a sequence added earlier; n-grams that no longer occur are dropped. */
+    void remove(String[] items) {
+        update(items, -1);
+    }
+
+    private void update(String[] items, int delta) {
+        StringBuilder key = new StringBuilder();
+        for (int start = 0; start < items.length; start++) {
+            key.setLength(0);
+            key.append(items[start]);
+            for (int length = 2; length <= maxLength && start + length <= items.length; length++) {
+                key.append(' ').append(items[start + length - 1]);
+                if (length >= minLength) {
+                    counts.merge(key.toString(), delta, (a, b) -> a + b == 0 ? null : a + b);
+                }
+            }
+        }
+    }
+
+    int count(String[] pattern) {
+        return counts.getOrDefault(String.join(" ", pattern), 0);
+    }
+
+    /**
+     * Estimated number of tokens saved by giving the pattern a code: every occurrence shrinks
+     * from length items to one code, and the code table entry costs the pattern plus its code.
+     */
+    static long gain(int length, int count) {
+        return (long) count * (length - 1) - (length + 1);
+    }
+
+    /** The n-grams with the highest estimated gain, best first, leaving out the excluded keys. */
+    List<String[]> best(int limit, Set<String> excluded) {
+        List<Map.Entry<String, Integer>> top = new ArrayList<>(limit + 1);
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (excluded.contains(entry.getKey())) {
+                continue;
+            }
+            long entryGain = gain(entry.getKey(), entry.getValue());
+            if (top.size() == limit && entryGain <= gain(top.get(limit - 1).getKey(), top.get(limit - 1).getValue())) {
+                continue;
+            }
+            int position = top.size();
+            while (position > 0 && gain(top.get(position - 1).getKey(), top.get(position - 1).getValue()) < entryGain) {
+                position--;
+            }
+            top.add(position, entry);
+            if (top.size() > limit) {
+                top.remove(limit);
+            }
+        }
+
+        List<String[]> patterns = new ArrayList<>(top.size());
+        for (Map.Entry<String, Integer> entry : top) {
+            patterns.add(entry.getKey().split(" "));
+        }
+        return patterns;
+    }
+
+    private static long gain(String key, int count) {
+        int length = 1;
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) == ' ') {
+                length++;
+            }
+        }
+        return gain(length, count);
+    }
+}
@@ -0,0 +1,358 @@
+package MMSC;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Online mining for .dat files that keep growing. Lines are read as they are appended, feed an
+ * incremental {@link NGramIndex} and are encoded right away with the current code table, so a new
+ * sequence costs a table lookup instead of a full re-run.
+ *
+ * Every --batch sequences the table is re-evaluated from the n-gram counts: while it has fewer than
+ * --ctl patterns the best candidate is added if its estimated gain reaches --threshold tokens, and a
+ * full table swaps its weakest pattern for a candidate that beats it by more than --threshold.
+ * A code, once assigned, is never reused for another pattern, so lines written earlier stay
+ * decodable; codeTable_online_&lt;dataset&gt;.txt lists every code ever assigned and
+ * encoded_online_&lt;dataset&gt; can be checked with {@link Decoder}.
+ *
+ * With --window n the counts cover only the last n sequences (see {@link SlidingWindowIndex}), so
+ * the table follows the recent stream and memory stays flat on unbounded input.
+ *
+ * Codes start at the power of ten above ten times the largest item seen before the first pattern,
+ * leaving room for items that only appear later, and skip every item seen so far. An item that
+ * first appears after a code equal to it was assigned stops the run with an error, since the line
+ * holding it could not be decoded.
+ */
+public class OnlineMiner {
+    static final String USAGE =
+        "Online options:\n"
+        + "  --input <file.dat>     file to read, new lines are picked up as they are appended\n"
+        + "  --output <dir>         folder for the encoded file and code table (default <input folder>/online/)\n"
+        + "  --ctl <n>              maximum number of patterns in the code table (default 10)\n"
+        + "  --maxlength <n>        longest pattern length to count and encode (default 4)\n"
+        + "  --threshold <n>        estimated token gain needed to add or swap a pattern (default 10)\n"
+        + "  --window <n>           count n-grams over the last n sequences only (default 0 = all)\n"
+        + "  --batch <n>            sequences between code table re-evaluations (default 100)\n"
+        + "  --follow true|false    keep waiting for appended lines (default false)\n"
+        + "  --poll <ms>            wait between checks for new lines with --follow (default 1000)\n"
+        + "  --verbose true|false   print table changes and throughput (default true)\n";
+
+    private static final int MIN_PATTERN_LENGTH = 2;
+
+    private final int maxPatterns;
+    private final long threshold;
+    private final boolean verbose;
+    private final File codeTableFile;
+    private final BufferedWriter encodedWriter;
+
+    private final NGramIndex index; // all sequences, or null with a window
+    private final SlidingWindowIndex window;
+    private final Set<String> seenItems = new HashSet<>();
+    private final Map<String, String> codesByPattern = new HashMap<>(); // every code ever assigned
+    private final Map<String, String[]> allCodes = new LinkedHashMap<>();
+    private final Map<String, String[]> activeCodes = new LinkedHashMap<>();
+    private List<Map.Entry<String, String[]>> sortedCodes = Collections.emptyList(); // activeCodes, longest first
+    private long maxItem = 0;
+    private long nextCode = -1;
+    private long sequenceCount = 0;
+    private long tokenCount = 0;
+    private long encodedTokens = 0;
+
+    OnlineMiner(int maxPatterns, int maxLength, long threshold, int windowSize, boolean verbose, File encodedFile,
+            File codeTableFile) throws IOException {
+        this.index = windowSize > 0 ? null : new NGramIndex(MIN_PATTERN_LENGTH, maxLength);
+        this.window = windowSize > 0 ? new SlidingWindowIndex(windowSize, maxLength) : null;
+        this.maxPatterns = maxPatterns;
+        this.threshold = threshold;
+        this.verbose = verbose;
+        this.codeTableFile = codeTableFile;
+        this.encodedWriter = new BufferedWriter(new FileWriter(encodedFile));
+    }
+
+    /** Counts, encodes and writes one appended sequence. */
+    void accept(String line) throws IOException {
+        String[] items = line.trim().split("\\s+");
+        if (items.length == 1 && items[0].isEmpty()) {
+            items = new String[0];
+        }
+        for (String item : items) {
+            if (seenItems.add(item)) {
+                if (allCodes.containsKey(item)) {
+                    throw new IOException("item " + item + " in sequence " + (sequenceCount + 1)
+                        + " collides with a pattern code assigned earlier");
+                }
+                if (item.length() >= Decoder.MAX_CODE_DIGITS - 1) {
+                    continue; // would push the codes past what the Decoder reads; collisions are still caught above
+                }
+                try {
+                    maxItem = Math.max(maxItem, Long.parseLong(item));
+                } catch (NumberFormatException e) {
+                    // Not a number, skip
+                }
+            }
+        }
+        if (window != null) {
+            window.add(items);
+        } else {
+            index.add(items);
+        }
+        sequenceCount++;
+        tokenCount += items.length;
+
+        String[] encoded = Encoder.encodeTokens(items, sortedCodes);
+        encodedTokens += encoded.length;
+        encodedWriter.write(String.join(" ", encoded));
+        encodedWriter.write('\n');
+    }
+
+    /**
+     * Adds or swaps patterns whose estimated gain crosses the threshold.
+     * Returns true if the active code table changed.
+     */
+    boolean reevaluate() throws IOException {
+        boolean changed = false;
+        for (int step = 0; step < maxPatterns; step++) {
+            Set<String> active = new HashSet<>();
+            String weakestCode = null;
+            long weakestGain = Long.MAX_VALUE;
+            for (Map.Entry<String, String[]> entry : activeCodes.entrySet()) {
+                String[] pattern = entry.getValue();
+                active.add(String.join(" ", pattern));
+                long patternGain = NGramIndex.gain(pattern.length, count(pattern));
+                if (patternGain < weakestGain) {
+                    weakestGain = patternGain;
+                    weakestCode = entry.getKey();
+                }
+            }
+
+            List<String[]> candidates = window != null ? window.best(1, active) : index.best(1, active);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            String[] candidate = candidates.get(0);
+            long candidateGain = NGramIndex.gain(candidate.length, count(candidate));
+            if (activeCodes.size() < maxPatterns && candidateGain >= threshold) {
+                activate(candidate, candidateGain);
+            } else if (activeCodes.size() == maxPatterns && candidateGain > weakestGain + threshold) {
+                String[] retired = activeCodes.remove(weakestCode);
+                log("Retired " + String.join(" ", retired) + " (gain " + weakestGain + ")");
+                activate(candidate, candidateGain);
+            } else {
+                break;
+            }
+            changed = true;
+        }
+        if (changed) {
+            sortedCodes = Encoder.longestFirst(activeCodes);
+            writeCodeTable();
+        }
+        return changed;
+    }
+
+    private int count(String[] pattern) {
+        return window != null ? window.count(pattern) : index.count(pattern);
+    }
+
+    private void activate(String[] pattern, long gain) {
+        String key = String.join(" ", pattern);
+        String code = codesByPattern.get(key);
+        if (code == null) {
+            if (nextCode < 0) {
+                long base = 1;
+                while (base <= maxItem * 10) {
+                    base *= 10;
+                }
+                nextCode = base;
+            }
+            while (seenItems.contains(String.valueOf(nextCode))) {
+                nextCode++;
+            }
+            code = String.valueOf(nextCode++);
+            codesByPattern.put(key, code);
+            allCodes.put(code, pattern);
+        }
+        activeCodes.put(code, pattern);
+        log("Added " + key + " as " + code + " (gain " + gain + ")");
+    }
+
+    private void writeCodeTable() throws IOException {
+        File temp = new File(codeTableFile.getPath() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp))) {
+            for (Map.Entry<String, String[]> entry : allCodes.entrySet()) {
+                writer.write(entry.getKey() + ":" + String.join(" ", entry.getValue()) + "\n");
+            }
+        }
+        if (!temp.renameTo(codeTableFile)) {
+            codeTableFile.delete();
+            if (!temp.renameTo(codeTableFile)) {
+                throw new IOException("Cannot replace " + codeTableFile);
+            }
+        }
+    }
+
+    void flush() throws IOException {
+        encodedWriter.flush();
+    }
+
+    void close() throws IOException {
+        encodedWriter.close();
+    }
+
+    long sequenceCount() {
+        return sequenceCount;
+    }
+
+    String summary() {
+        return sequenceCount + " sequences, " + activeCodes.size() + " active patterns, tokens "
+            + tokenCount + " -> " + encodedTokens;
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    public static void main(String[] args) {
+        File input;
+        File outputFolder;
+        int maxPatterns;
+        int maxLength;
+        long threshold;
+        int windowSize;
+        int batch;
+        boolean follow;
+        long poll;
+        boolean verbose;
+        try {
+            Properties options = Config.readOptions(args);
+            if (!options.containsKey("input")) {
+                throw new IllegalArgumentException("Missing --input");
+            }
+            input = new File(options.getProperty("input"));
+            String parent = input.getAbsoluteFile().getParent();
+            outputFolder = new File(options.getProperty("output", parent + "/online/"));
+            maxPatterns = Integer.parseInt(options.getProperty("ctl", "10"));
+            maxLength = Integer.parseInt(options.getProperty("maxlength", "4"));
+            threshold = Long.parseLong(options.getProperty("threshold", "10"));
+            windowSize = Integer.parseInt(options.getProperty("window", "0"));
+            batch = Integer.parseInt(options.getProperty("batch", "100"));
+            follow = Boolean.parseBoolean(options.getProperty("follow", "false"));
+            poll = Long.parseLong(options.getProperty("poll", "1000"));
+            verbose = Boolean.parseBoolean(options.getProperty("verbose", "true"));
+            for (String key : options.stringPropertyNames()) {
+                if (!Arrays.asList("input", "output", "ctl", "maxlength", "threshold", "window", "batch", "follow", "poll", "verbose").contains(key)) {
+                    throw new IllegalArgumentException("Unknown option: " + key);
+                }
+            }
+            if (maxPatterns < 0 || windowSize < 0 || batch <= 0) {
+                throw new IllegalArgumentException("ctl and window must not be negative and batch must be positive");
+            }
+            if (maxLength < MIN_PATTERN_LENGTH) {
+                throw new IllegalArgumentException("maxlength must be at least 2: " + maxLength);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            System.err.print(USAGE);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            return;
+        }
+
+        outputFolder.mkdirs();
+        String datasetName = input.getName();
+        File encodedFile = new File(outputFolder, "encoded_online_" + datasetName);
+        File codeTableFile = new File(outputFolder, "codeTable_online_" + datasetName + ".txt");
+
+        try (RandomAccessFile source = new RandomAccessFile(input, "r")) {
+            OnlineMiner miner = new OnlineMiner(maxPatterns, maxLength, threshold, windowSize, verbose, encodedFile, codeTableFile);
+            miner.writeCodeTable();
+            long processingNanos = 0;
+            long position = 0;
+            ByteArrayLine pending = new ByteArrayLine();
+            byte[] buffer = new byte[1 << 16];
+            try {
+                while (true) {
+                    source.seek(position);
+                    int read = source.read(buffer);
+                    if (read > 0) {
+                        long start = System.nanoTime();
+                        position += read;
+                        for (int i = 0; i < read; i++) {
+                            if (buffer[i] == '\n') {
+                                miner.accept(pending.take());
+                                if (miner.sequenceCount() % batch == 0) {
+                                    miner.reevaluate();
+                                    report(miner, processingNanos + System.nanoTime() - start, verbose);
+                                }
+                            } else if (buffer[i] != '\r') {
+                                pending.add(buffer[i]);
+                            }
+                        }
+                        miner.flush();
+                        processingNanos += System.nanoTime() - start;
+                        continue;
+                    }
+                    if (!follow) {
+                        break;
+                    }
+                    Thread.sleep(poll);
+                }
+                long start = System.nanoTime();
+                if (pending.size() > 0) {
+                    miner.accept(pending.take()); // last line without a newline
+                }
+                miner.reevaluate();
+                processingNanos += System.nanoTime() - start;
+            } finally {
+                miner.close();
+            }
+
+            double seconds = processingNanos / 1e9;
+            System.out.println("Online run for " + datasetName + ": " + miner.summary());
+            System.out.println(String.format("Throughput: %.0f sequences/s (%.2f s processing)",
+                seconds > 0 ? miner.sequenceCount() / seconds : 0.0, seconds));
+        } catch (IOException e) {
+            System.err.println("Error in online run for " + datasetName + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void report(OnlineMiner miner, long processingNanos, boolean verbose) {
+        if (verbose) {
+            System.out.println(String.format("%s, %.0f sequences/s", miner.summary(),
+                miner.sequenceCount() / Math.max(processingNanos / 1e9, 1e-9)));
+        }
+    }
+
+    /** Bytes of the line being read; a line can span several reads. */
+    private static final class ByteArrayLine {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void add(byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = b;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String take() {
+            String line = new String(bytes, 0, size, StandardCharsets.UTF_8);
+            size = 0;
+            return line;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package MMSC;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The mining rounds shared by the search miners. Every round picks a pattern length, lets the
+ * miner search the current sequences with {@link #findPattern(int)}, verifies the result and
+ * replaces its occurrences; the driver also restores and writes checkpoints, stops at the time
+ * budget or once no pattern repeats, and moves the length weights towards lengths that yield
+ * patterns. With --starts each round runs several searches of the same miner at once.
+ */
+abstract class PatternMiner implements Miner {
+    static final int MIN_PATTERN_LENGTH = 2;
+    private static final double WEIGHT_DECREASE = 0.1; // Amount to adjust weight for failed length
+    private static final double MIN_WEIGHT = 0.1; // Minimum weight to ensure all lengths are considered
+
+    final Config config;
+    final Corpus corpus;
+    final ForkJoinPool scanPool;
+    final Set<String> uniqueItems;
+    final Evaluator evaluator;
+    Random random;
+    FrequencySource frequencySource; // the sequences the current search runs on
+    SuccessorGraph.SearchItems searchItems; // items of the current sequences, numbered for the moves
+    long deadline; // when the searches of the current mine() stop, 0 = no budget
+    private Race race; // set while this search runs in a portfolio round
+    private MultiStart starts; // the searches of each round with --starts, null otherwise
+    private boolean budgetHit;
+    private List<PatternResult> foundPatterns;
+    private double[] patternLengthWeights; // One weight per pattern length from 2 to the configured maximum
+
+    PatternMiner(Config config, Corpus corpus, ForkJoinPool scanPool) {
+        this.config = config;
+        this.corpus = corpus;
+        this.scanPool = scanPool;
+        this.uniqueItems = corpus.uniqueItems;
+        this.random = config.newRandom();
+        this.evaluator = new Evaluator(config);
+    }
+
+    /** Searches {@link #frequencySource} for a pattern of the given length, null if none occurs. */
+    abstract PatternResult findPattern(int patternSize);
+
+    /** A miner of the same kind with its own state, for one of the other searches of --starts. */
+    abstract PatternMiner newStart();
+
+    /** Called once a verified pattern has been replaced in the sequences. */
+    void accepted(PatternResult result, int CTL) {
+    }
+
+    /** Called when the rounds of a CTL are over, before the patterns are encoded. */
+    void finished(int CTL) {
+    }
+
+    @Override
+    public final double mine(int CTL) {
+        long startTime = System.currentTimeMillis();
+        frequencySource = FrequencySource.create(config, corpus, corpus.sequences, scanPool);
+        foundPatterns = new ArrayList<>();
+        evaluator.clear();
+        // Reset pattern length weights for each CTL
+        patternLengthWeights = new double[config.maxPatternLength - MIN_PATTERN_LENGTH + 1];
+        Arrays.fill(patternLengthWeights, 1.0 / patternLengthWeights.length);
+        File checkpointFile = Checkpoint.file(config, corpus.datasetName, CTL);
+        if (config.checkpoint) {
+            startTime -= restoreCheckpoint(checkpointFile, CTL);
+        }
+        deadline = config.deadline(startTime);
+
+        // Find patterns for current CTL
+        if (CTL > 0) {
+            searchItems = new SuccessorGraph.SearchItems(config, uniqueItems, frequencySource);
+            if (config.starts > 1) {
+                starts = new MultiStart((source, items, until, size) -> findPattern(size), config.starts, random, seed -> {
+                    PatternMiner start = newStart();
+                    start.random = seed;
+                    return start::startRound;
+                });
+            }
+            while (foundPatterns.size() < CTL) {
+                if (config.budgetExceeded(startTime)) {
+                    log("Time budget of " + config.timeBudgetMs + " ms reached with "
+                        + foundPatterns.size() + " of " + CTL + " patterns for CTL=" + CTL);
+                    break;
+                }
+                if (frequencySource.longestRepeat() < MIN_PATTERN_LENGTH) {
+                    log("No pattern occurs more than once, stopping at " + foundPatterns.size() + " patterns for CTL=" + CTL);
+                    break;
+                }
+                // Longer patterns than the longest repeat can occur only once
+                boolean variableLength = config.genome.equals("variable");
+                int patternSize = Math.min(variableLength ? config.maxPatternLength : selectPatternSize(), frequencySource.longestRepeat());
+                log("Finding pattern #" + (foundPatterns.size() + 1) + " of size " + (variableLength ? "2-" : "") + patternSize + " for CTL=" + CTL);
+
+                PatternResult result = starts != null ? starts.find(frequencySource, searchItems, deadline, patternSize) : findPattern(patternSize);
+                if (result != null && !containsNull(result.pattern)) {
+                    result.frequency = frequencySource.verify(result.pattern, result.frequency);
+                }
+                if (result != null && result.frequency > 0 && !containsNull(result.pattern)) {
+                    foundPatterns.add(result);
+                    frequencySource.removePattern(result.pattern);
+                    // The items and their graph only change when a pattern is removed
+                    searchItems = new SuccessorGraph.SearchItems(config, uniqueItems, frequencySource);
+                    evaluator.clear();
+                    accepted(result, CTL);
+                    // Increase weight for successful pattern length
+                    if (!variableLength) {
+                        adjustWeights(patternSize, true);
+                    }
+                    if (config.checkpoint) {
+                        Checkpoint.write(checkpointFile, startTime, foundPatterns, frequencySource, random, patternLengthWeights, corpus.datasetName, CTL);
+                    }
+                } else if (variableLength) {
+                    // Every variable-length round searches the same lengths of the same sequences,
+                    // so a round that finds nothing would only be repeated
+                    log("No pattern found, stopping at " + foundPatterns.size() + " patterns for CTL=" + CTL);
+                    break;
+                } else {
+                    // Decrease weight for failed pattern length
+                    adjustWeights(patternSize, false);
+                }
+            }
+
+            if (starts != null) {
+                starts.shutdown();
+                starts = null;
+            }
+            log("\nAll found patterns for CTL=" + CTL + ":");
+            for (PatternResult pattern : foundPatterns) {
+                log(pattern.toString());
+            }
+        }
+
+        budgetHit = config.budgetExceeded(startTime);
+        finished(CTL);
+
+        // Encode and save patterns, calculate compression ratio
+        log("\nEncoding patterns and saving files for CTL=" + CTL + "...");
+        List<String[]> patterns = new ArrayList<>();
+        for (PatternResult pattern : foundPatterns) {
+            patterns.add(pattern.pattern);
+        }
+        double compressionRatio = Encoder.encodeAndSave(config, corpus, patterns, CTL);
+        log("Encoding complete for CTL=" + CTL + "!");
+        return compressionRatio;
+    }
+
+    @Override
+    public boolean budgetHit() {
+        return budgetHit;
+    }
+
+    /** One search of a portfolio round, over the round's frequency source and stopped by the race. */
+    final PatternResult raceRound(FrequencySource source, SuccessorGraph.SearchItems items, int patternSize, Race race) {
+        frequencySource = source;
+        searchItems = items;
+        evaluator.clear();
+        this.race = race;
+        try {
+            return findPattern(patternSize);
+        } finally {
+            this.race = null;
+        }
+    }
+
+    /** One of the other searches of a --starts round, over the round's frequency source. */
+    private PatternResult startRound(FrequencySource source, SuccessorGraph.SearchItems items, long deadline, int patternSize) {
+        frequencySource = source;
+        searchItems = items;
+        this.deadline = deadline;
+        evaluator.clear();
+        return findPattern(patternSize);
+    }
+
+    /** Checked once per search iteration: the time budget is spent or the portfolio round is over. */
+    final boolean searchOver(int bestFitness) {
+        return (deadline > 0 && System.currentTimeMillis() >= deadline) || (race != null && race.over(bestFitness));
+    }
+
+    private long restoreCheckpoint(File checkpointFile, int CTL) {
+        Checkpoint checkpoint = Checkpoint.resume(config, checkpointFile, CTL);
+        if (checkpoint == null) {
+            return 0;
+        }
+        frequencySource = FrequencySource.create(config, corpus, checkpoint.sequences, scanPool);
+        foundPatterns.addAll(checkpoint.results());
+        random = checkpoint.random;
+        patternLengthWeights = checkpoint.patternLengthWeights(patternLengthWeights);
+        return checkpoint.elapsedMillis;
+    }
+
+    final void log(String message) {
+        if (config.verbose) {
+            System.out.println(message);
+        }
+    }
+
+    private int selectPatternSize() {
+        double rand = random.nextDouble();
+        double cumulative = 0.0;
+        for (int i = 0; i < patternLengthWeights.length; i++) {
+            cumulative += patternLengthWeights[i];
+            if (rand <= cumulative) {
+                return i + MIN_PATTERN_LENGTH; // Maps index 0->2, 1->3, ...
+            }
+        }
+        return config.maxPatternLength; // Fallback to max length
+    }
+
+    private void adjustWeights(int patternSize, boolean success) {
+        int index = patternSize - MIN_PATTERN_LENGTH; // Maps size 2->0, 3->1, ...
+        double totalWeight = Arrays.stream(patternLengthWeights).sum();
+
+        if (success) {
+            // Increase weight for successful pattern length
+            patternLengthWeights[index] = Math.min(patternLengthWeights[index] + WEIGHT_DECREASE, 1.0);
+        } else {
+            // Decrease weight for failed pattern length
+            patternLengthWeights[index] = Math.max(patternLengthWeights[index] - WEIGHT_DECREASE, MIN_WEIGHT);
+        }
+
+        // Redistribute weights to other lengths
+        double remainingWeight = totalWeight - patternLengthWeights[index];
+        if (remainingWeight > 0) {
+            for (int i = 0; i < patternLengthWeights.length; i++) {
+                if (i != index) {
+                    patternLengthWeights[i] = (patternLengthWeights[i] / remainingWeight) * (totalWeight - patternLengthWeights[index]);
+                }
+            }
+        }
+
+        // Normalize weights to sum to 1
+        double sum = Arrays.stream(patternLengthWeights).sum();
+        for (int i = 0; i < patternLengthWeights.length; i++) {
+            patternLengthWeights[i] = patternLengthWeights[i] / sum;
+        }
+
+        // Debug: Print updated weights
+        StringBuilder weights = new StringBuilder("Updated pattern length weights:");
+        for (int i = 0; i < patternLengthWeights.length; i++) {
+            weights.append(i == 0 ? " " : ", ").append(i + MIN_PATTERN_LENGTH).append(String.format("=%.3f", patternLengthWeights[i]));
+        }
+        log(weights.toString());
+    }
+
+    static boolean containsNull(String[] pattern) {
+        for (String item : pattern) {
+            if (item == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
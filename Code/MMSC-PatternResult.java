@@ -0,0 +1,24 @@
+package MMSC;
+
+/** A pattern found by a search, with its frequency in the current sequences. */
+final class PatternResult {
+    String[] pattern;
+    int frequency;
+    int size;
+
+    PatternResult(String[] pattern, int frequency, int size) {
+        this.pattern = pattern;
+        this.frequency = frequency;
+        this.size = size;
+    }
+
+    /** Items its occurrences would replace, the measure searches of different lengths are compared by. */
+    long score() {
+        return (long) frequency * (size - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Size " + size + ": " + String.join(" ", pattern) + " (Frequency: " + frequency + ")";
+    }
+}
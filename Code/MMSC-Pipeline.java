@@ -0,0 +1,127 @@
+package MMSC;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the configured miner over every .dat file in the input folder and every CTL value,
+ * appending one row per (dataset, CTL) to results&lt;algorithm&gt;.csv in the output folder, with
+ * BudgetHit true where the time budget cut the search short.
+ * With --checkpoint the CSV is kept and (dataset, CTL) rows already in it are not mined again.
+ * With --group the .dat files are mined together as one dataset named after the input folder,
+ * which gets one row per CTL.
+ */
+final class Pipeline {
+    private Pipeline() {
+    }
+
+    static void run(Config config) {
+        System.out.println("Configuration: " + config);
+
+        // Create output directory
+        new File(config.outputFolder).mkdirs();
+
+        // Initialize CSV file for results, keeping finished rows when resuming
+        String csvFilePath = config.outputFolder + "results" + config.algorithm + ".csv";
+        Set<String> completed = new HashSet<>();
+        try {
+            if (config.checkpoint && new File(csvFilePath).length() > 0) {
+                completed = Checkpoint.completedRows(csvFilePath, 2);
+                System.out.println("Resuming with " + completed.size() + " finished rows in " + csvFilePath);
+            } else {
+                try (BufferedWriter csvWriter = new BufferedWriter(new FileWriter(csvFilePath))) {
+                    csvWriter.write("Dataset,CTL,CompressionRatio,ExecutionTime(ms),BudgetHit\n");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error initializing CSV file: " + e.getMessage());
+            return;
+        }
+
+        // Get all files in the input folder
+        File folder = new File(config.folderPath);
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null || files.length == 0) {
+            System.err.println("No .dat files found in " + config.folderPath);
+            return;
+        }
+
+        // Scan the corpus in parallel when more than one thread is configured
+        ForkJoinPool scanPool = config.threads > 1 ? new ForkJoinPool(config.threads) : null;
+        try {
+            // Process each file, or all of them as one corpus named after the folder
+            File[] datasets = config.group ? new File[]{new File(folder, folder.getName())} : files;
+            for (File file : datasets) {
+                String datasetName = file.getName();
+                List<Integer> pending = new ArrayList<>();
+                for (int CTL : config.ctlValues) {
+                    if (!completed.contains(datasetName + "," + CTL)) {
+                        pending.add(CTL);
+                    }
+                }
+                if (pending.isEmpty()) {
+                    System.out.println("\nSkipping dataset " + datasetName + ", all CTL values are already in the results");
+                    continue;
+                }
+                System.out.println("\nProcessing dataset: " + datasetName);
+
+                Corpus corpus;
+                try {
+                    corpus = config.group ? loadGroup(file, files) : Corpus.load(file, config.storage.equals("offheap"));
+                } catch (IOException e) {
+                    System.err.println("Error reading file " + datasetName + ": " + e.getMessage());
+                    continue;
+                }
+
+                // Process each CTL value
+                Miner miner = Miner.create(config, corpus, scanPool);
+                for (int CTL : pending) {
+                    // A resumed run also counts the time spent before the checkpoint
+                    File checkpointFile = Checkpoint.file(config, datasetName, CTL);
+                    long startTime = System.currentTimeMillis()
+                        - (config.checkpoint ? Checkpoint.elapsedMillis(checkpointFile) : 0);
+                    double compressionRatio = miner.mine(CTL);
+                    long totalTime = System.currentTimeMillis() - startTime;
+
+                    // Append results to CSV
+                    try (BufferedWriter csvWriter = new BufferedWriter(new FileWriter(csvFilePath, true))) {
+                        csvWriter.write(String.format("%s,%d,%.2f,%d,%b\n", datasetName, CTL, compressionRatio, totalTime, miner.budgetHit()));
+                        csvWriter.flush();
+                        checkpointFile.delete();
+                    } catch (IOException e) {
+                        System.err.println("Error writing to CSV for " + datasetName + ", CTL=" + CTL + ": " + e.getMessage());
+                    }
+
+                    System.out.println("\nResults for CTL=" + CTL + ":");
+                    System.out.println("Execution time: " + totalTime + " milliseconds (" + (totalTime / 1000.0) + " seconds)");
+                    System.out.printf("Compression Ratio: %.2f:1\n", compressionRatio);
+                    if (miner.budgetHit()) {
+                        System.out.println("Time budget reached, encoded the patterns found within it");
+                    }
+                }
+            }
+        } finally {
+            if (scanPool != null) {
+                scanPool.shutdown();
+            }
+        }
+    }
+
+    private static Corpus loadGroup(File file, File[] files) throws IOException {
+        List<Corpus> members = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (File member : files) {
+            members.add(Corpus.load(member, false));
+            names.add(member.getName());
+        }
+        System.out.println("Group members: " + String.join(", ", names));
+        return Corpus.merge(file, members);
+    }
+}
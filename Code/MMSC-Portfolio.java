@@ -0,0 +1,184 @@
+package MMSC;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Portfolio miner (--algorithm auto): every round runs HOA, GA and PSO at once against the same
+ * frequency source and keeps one result. With --target it takes the first search to reach that
+ * fitness and stops the others, otherwise the result that replaces the most items once all have
+ * finished or the time budget is spent. The winner of every round is appended to winners.csv in
+ * the output folder (by default the AUTO folder of the input), and --algorithm best later reads it
+ * from there and runs, per dataset, the miner that won most often.
+ */
+final class Portfolio extends PatternMiner {
+    static final String WINNERS_FILE = "winners.csv";
+    private static final String[] ALGORITHMS = {"HOA", "GA", "PSO"};
+
+    private final HOA hoa;
+    private final GA ga;
+    private final PSO pso;
+    private final List<String> winners = new ArrayList<>(); // rows for the winners log of the current CTL
+    private ForkJoinPool racePool;
+    private Lap winner; // the lap picked in the last round
+    private long roundStart;
+
+    /** The result of one search in a round and when it came in. */
+    private static final class Lap {
+        final String algorithm;
+        final PatternResult result;
+        final long finished = System.nanoTime();
+
+        Lap(String algorithm, PatternResult result) {
+            this.algorithm = algorithm;
+            this.result = result;
+        }
+    }
+
+    Portfolio(Config config, Corpus corpus, ForkJoinPool scanPool) {
+        super(config, corpus, scanPool);
+        this.hoa = new HOA(config, corpus, scanPool);
+        this.ga = new GA(config, corpus, scanPool);
+        this.pso = new PSO(config, corpus, scanPool);
+    }
+
+    /**
+     * The miner for --algorithm best: the one with the most round wins for this dataset in the
+     * winners log written by --algorithm auto, or a racing portfolio while the log has none.
+     */
+    static Miner best(Config config, Corpus corpus, ForkJoinPool scanPool) {
+        Map<String, Integer> wins = new HashMap<>();
+        File log = new File(config.winnersFolder + WINNERS_FILE);
+        if (log.length() == 0) {
+            System.err.println("Warning: no winners log at " + log.getPath() + ", run --algorithm auto first; racing all miners for "
+                + corpus.datasetName);
+            return new Portfolio(config, corpus, scanPool);
+        }
+        try {
+            for (String row : Checkpoint.rows(log.getPath())) {
+                String[] columns = row.split(",");
+                if (columns.length > 3 && columns[0].equals(corpus.datasetName)) {
+                    wins.merge(columns[3], 1, Integer::sum);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading " + log.getPath() + ": " + e.getMessage());
+        }
+        String winner = null;
+        for (String algorithm : ALGORITHMS) {
+            if (wins.getOrDefault(algorithm, 0) > wins.getOrDefault(winner, 0)) {
+                winner = algorithm;
+            }
+        }
+        if (winner == null) {
+            System.out.println("No recorded wins for " + corpus.datasetName + ", racing all miners");
+            return new Portfolio(config, corpus, scanPool);
+        }
+        System.out.println("Running " + winner + " for " + corpus.datasetName + " (" + wins + " round wins)");
+        switch (winner) {
+            case "GA":
+                return new GA(config, corpus, scanPool);
+            case "PSO":
+                return new PSO(config, corpus, scanPool);
+            default:
+                return new HOA(config, corpus, scanPool);
+        }
+    }
+
+    @Override
+    PatternMiner newStart() {
+        return new Portfolio(config, corpus, scanPool);
+    }
+
+    /** One round: races the three miners on the current sequences and returns the winning lap's pattern. */
+    @Override
+    PatternResult findPattern(int patternSize) {
+        if (racePool == null) {
+            racePool = new ForkJoinPool(ALGORITHMS.length);
+        }
+        FrequencySource source = frequencySource;
+        SuccessorGraph.SearchItems items = searchItems;
+        roundStart = System.currentTimeMillis();
+        Race race = new Race(config.target, deadline);
+        List<ForkJoinTask<Lap>> laps = List.of(
+            racePool.submit(() -> lap("HOA", hoa.raceRound(source, items, patternSize, race))),
+            racePool.submit(() -> lap("GA", ga.raceRound(source, items, patternSize, race))),
+            racePool.submit(() -> lap("PSO", pso.raceRound(source, items, patternSize, race))));
+        winner = pickWinner(laps, race);
+        return winner == null ? null : winner.result;
+    }
+
+    private static Lap lap(String algorithm, PatternResult result) {
+        return result == null ? null : new Lap(algorithm, result);
+    }
+
+    @Override
+    void accepted(PatternResult result, int CTL) {
+        winners.add(String.format("%s,%d,%d,%s,%d,%d,%s", corpus.datasetName, CTL, winners.size() + 1, winner.algorithm,
+            result.frequency, System.currentTimeMillis() - roundStart, quote(String.join(" ", result.pattern))));
+        log("Pattern #" + winners.size() + " won by " + winner.algorithm + ": " + result);
+    }
+
+    @Override
+    void finished(int CTL) {
+        if (racePool != null) {
+            racePool.shutdown();
+            racePool = null;
+        }
+        saveWinners(winners);
+        winners.clear();
+    }
+
+    /**
+     * The first lap to reach the target, else the lap that replaces the most items; ties go to
+     * the earlier miner in HOA, GA, PSO order so that a race without a target is reproducible.
+     */
+    private Lap pickWinner(List<ForkJoinTask<Lap>> laps, Race race) {
+        Lap first = null;
+        Lap best = null;
+        for (ForkJoinTask<Lap> task : laps) {
+            Lap lap = task.join();
+            if (lap == null || containsNull(lap.result.pattern)) {
+                continue;
+            }
+            int fitness = config.genome.equals("variable") ? (int) Math.min(Integer.MAX_VALUE, lap.result.score()) : lap.result.frequency;
+            if (race.reached(fitness) && (first == null || lap.finished < first.finished)) {
+                first = lap;
+            }
+            if (best == null || lap.result.score() > best.result.score()) {
+                best = lap;
+            }
+        }
+        return first != null ? first : best;
+    }
+
+    /** Appends the round winners to the winners log, writing its header first if it is new. */
+    private void saveWinners(List<String> winners) {
+        if (winners.isEmpty()) {
+            return;
+        }
+        new File(config.winnersFolder).mkdirs();
+        File log = new File(config.winnersFolder + WINNERS_FILE);
+        boolean header = log.length() == 0;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(log, true))) {
+            if (header) {
+                writer.write("Dataset,CTL,Round,Algorithm,Frequency,RoundTime(ms),Pattern\n");
+            }
+            for (String row : winners) {
+                writer.write(row + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing " + log.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /** The pattern as a CSV field; it is the last column, so best can still split the others on commas. */
+    private static String quote(String pattern) {
+        return "\"" + pattern.replace("\"", "\"\"") + "\"";
+    }
+}
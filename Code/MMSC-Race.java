@@ -0,0 +1,32 @@
+package MMSC;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stop signal shared by the searches racing on one round of a {@link Portfolio}. Every search
+ * checks it once per iteration with its best fitness so far and, once the race is over, returns
+ * that best. The race is over when one search reaches the target fitness or the deadline passes.
+ */
+final class Race {
+    private final AtomicBoolean over = new AtomicBoolean();
+    private final int target;
+    private final long deadline;
+
+    /** A target of 0 and a deadline of 0 (epoch millis) both mean none. */
+    Race(int target, long deadline) {
+        this.target = target;
+        this.deadline = deadline;
+    }
+
+    boolean reached(int fitness) {
+        return target > 0 && fitness >= target;
+    }
+
+    /** Checked by a search with its best fitness; a search at the target ends the race for all of them. */
+    boolean over(int bestFitness) {
+        if (reached(bestFitness)) {
+            over.set(true);
+        }
+        return over.get() || (deadline > 0 && System.currentTimeMillis() >= deadline);
+    }
+}
@@ -0,0 +1,307 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Re-Pair grammar compression as a mining backend (--algorithm repair): replaces the most frequent
+ * adjacent pair of symbols by a new code, again and again, until CTL codes are made, no pair occurs
+ * twice or the time budget runs out. A code may pair earlier codes, so the code table is
+ * hierarchical and a long repeat becomes a chain of two-symbol entries, all without a search.
+ *
+ * The sequences are one int array linked into lists, so a replacement only relinks neighbours.
+ * Every pair keeps the positions it was seen at, checked again when the pair is replaced, and sits
+ * in a bucket by its count. A pair made by a replacement occurs at most as often as the pair
+ * replaced, so the highest bucket only moves down and a run takes close to linear time.
+ */
+final class RePair implements Miner {
+    private static final int REMOVED = 0;
+
+    private final Config config;
+    private final Corpus corpus;
+    private boolean budgetHit;
+
+    private int[] symbols; // symbol at each position, REMOVED once merged into its left neighbour
+    private int[] next; // next position of the same sequence, -1 after the last
+    private int[] prev;
+    private Map<Long, Pair> pairs;
+    private Pair[] buckets; // count -> pairs with that count
+    private int top; // no bucket above it holds a pair
+
+    /** A pair of symbols with its count and the positions of its left symbol, some of them stale. */
+    private static final class Pair {
+        final int left;
+        final int right;
+        int count;
+        int[] positions = new int[2];
+        int size;
+        int bucket; // count it is filed under, 0 = not filed
+        Pair previous;
+        Pair following;
+
+        Pair(int left, int right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    RePair(Config config, Corpus corpus) {
+        this.config = config;
+        this.corpus = corpus;
+    }
+
+    @Override
+    public double mine(int CTL) {
+        long startTime = System.currentTimeMillis();
+        int[] starts = link(corpus.sequences);
+        int itemCount = corpus.items.size();
+        countPairs();
+
+        List<int[]> rules = new ArrayList<>();
+        budgetHit = false;
+        while (rules.size() < CTL) {
+            if (config.budgetExceeded(startTime)) {
+                budgetHit = true;
+                log("Time budget of " + config.timeBudgetMs + " ms reached with " + rules.size() + " of " + CTL + " codes");
+                break;
+            }
+            while (top >= 2 && buckets[top] == null) {
+                top--;
+            }
+            if (top < 2) {
+                log("No pair occurs more than once, stopping at " + rules.size() + " codes for CTL=" + CTL);
+                break;
+            }
+            Pair pair = buckets[top];
+            unfile(pair);
+            int count = collect(pair);
+            if (count != pair.count) {
+                // Counts of pairs inside runs of one symbol are estimates; file it again under the real one
+                pair.count = count;
+                if (count >= 2) {
+                    file(pair);
+                } else {
+                    pairs.remove(key(pair.left, pair.right));
+                }
+                continue;
+            }
+            pairs.remove(key(pair.left, pair.right));
+            rules.add(new int[]{pair.left, pair.right});
+            replace(pair, itemCount + rules.size());
+        }
+
+        List<String> codes = Encoder.newCodes(corpus, rules.size());
+        Map<String, String[]> codeTable = new LinkedHashMap<>();
+        for (int r = 0; r < rules.size(); r++) {
+            codeTable.put(codes.get(r), new String[]{name(rules.get(r)[0], codes), name(rules.get(r)[1], codes)});
+        }
+        List<String[]> encodedSequences = new ArrayList<>(starts.length);
+        int symbolCount = 0;
+        for (int start : starts) {
+            List<String> tokens = new ArrayList<>();
+            for (int i = start; i != -1; i = next[i]) {
+                tokens.add(name(symbols[i], codes));
+            }
+            symbolCount += tokens.size();
+            encodedSequences.add(tokens.toArray(new String[0]));
+        }
+        log("Re-Pair made " + rules.size() + " codes for CTL=" + CTL + ", " + symbols.length + " items down to "
+            + symbolCount + " symbols in " + (System.currentTimeMillis() - startTime) + " ms");
+        symbols = next = prev = null;
+        pairs = null;
+        buckets = null;
+
+        log("\nEncoding patterns and saving files for CTL=" + CTL + "...");
+        return Encoder.save(config, corpus, codeTable, encodedSequences, CTL);
+    }
+
+    @Override
+    public boolean budgetHit() {
+        return budgetHit;
+    }
+
+    /** Lays all sequences out as linked item ids and returns the first position of each, -1 if empty. */
+    private int[] link(List<String> sequences) {
+        List<String[]> split = new ArrayList<>(sequences.size());
+        int length = 0;
+        for (String sequence : sequences) {
+            String[] items = sequence.trim().isEmpty() ? new String[0] : sequence.trim().split("\\s+");
+            split.add(items);
+            length += items.length;
+        }
+        symbols = new int[length];
+        next = new int[length];
+        prev = new int[length];
+        int[] starts = new int[split.size()];
+        int position = 0;
+        for (int s = 0; s < split.size(); s++) {
+            String[] items = split.get(s);
+            starts[s] = items.length == 0 ? -1 : position;
+            for (int i = 0; i < items.length; i++, position++) {
+                symbols[position] = corpus.id(items[i]);
+                prev[position] = i == 0 ? -1 : position - 1;
+                next[position] = i == items.length - 1 ? -1 : position + 1;
+            }
+        }
+        return starts;
+    }
+
+    /** Counts the non-overlapping occurrences of every pair and files those seen at least twice. */
+    private void countPairs() {
+        pairs = new HashMap<>();
+        buckets = new Pair[symbols.length / 2 + 2];
+        top = 0;
+        int lastCounted = -1;
+        for (int i = 0; i < symbols.length; i++) {
+            if (next[i] == -1) {
+                continue;
+            }
+            int left = symbols[i];
+            int right = symbols[next[i]];
+            if (left == right && prev[i] != -1 && prev[i] == lastCounted && symbols[prev[i]] == left) {
+                lastCounted = -1; // overlaps the pair just counted in a run of one symbol
+                continue;
+            }
+            Pair pair = pairs.computeIfAbsent(key(left, right), k -> new Pair(left, right));
+            pair.add(i);
+            pair.count++;
+            lastCounted = i;
+        }
+        pairs.values().removeIf(pair -> pair.count < 2); // no replacement can add to a pair of two old symbols
+        for (Pair pair : pairs.values()) {
+            file(pair);
+        }
+    }
+
+    /** Keeps only the positions where the pair still occurs, in order and without overlaps, and returns their number. */
+    private int collect(Pair pair) {
+        Arrays.sort(pair.positions, 0, pair.size);
+        int kept = 0;
+        int last = -1;
+        for (int p = 0; p < pair.size; p++) {
+            int i = pair.positions[p];
+            if (i == last || !occursAt(pair, i) || (pair.left == pair.right && last != -1 && prev[i] == last)) {
+                continue;
+            }
+            pair.positions[kept++] = i;
+            last = i;
+        }
+        pair.size = kept;
+        return kept;
+    }
+
+    private boolean occursAt(Pair pair, int i) {
+        return symbols[i] == pair.left && next[i] != -1 && symbols[next[i]] == pair.right;
+    }
+
+    /** Replaces every collected occurrence of the pair by the symbol and updates the neighbouring pairs. */
+    private void replace(Pair pair, int symbol) {
+        for (int p = 0; p < pair.size; p++) {
+            int i = pair.positions[p];
+            if (!occursAt(pair, i)) {
+                continue;
+            }
+            int j = next[i];
+            int before = prev[i];
+            int after = next[j];
+            if (before != -1) {
+                decrement(symbols[before], pair.left);
+            }
+            if (after != -1) {
+                decrement(pair.right, symbols[after]);
+            }
+            symbols[i] = symbol;
+            symbols[j] = REMOVED;
+            next[i] = after;
+            if (after != -1) {
+                prev[after] = i;
+            }
+            if (before != -1) {
+                increment(symbols[before], symbol, before);
+            }
+            if (after != -1) {
+                increment(symbol, symbols[after], i);
+            }
+        }
+    }
+
+    private void decrement(int left, int right) {
+        Pair pair = pairs.get(key(left, right));
+        if (pair == null) {
+            return;
+        }
+        unfile(pair);
+        pair.count--;
+        if (pair.count >= 2) {
+            file(pair);
+        } else if (pair.count <= 0) {
+            pairs.remove(key(left, right));
+        }
+    }
+
+    private void increment(int left, int right, int position) {
+        Pair pair = pairs.computeIfAbsent(key(left, right), k -> new Pair(left, right));
+        unfile(pair);
+        pair.add(position);
+        pair.count++;
+        if (pair.count >= 2) {
+            file(pair);
+        }
+    }
+
+    private void file(Pair pair) {
+        int count = Math.min(pair.count, buckets.length - 1);
+        pair.bucket = count;
+        pair.previous = null;
+        pair.following = buckets[count];
+        if (pair.following != null) {
+            pair.following.previous = pair;
+        }
+        buckets[count] = pair;
+        top = Math.max(top, count);
+    }
+
+    private void unfile(Pair pair) {
+        if (pair.bucket == 0) {
+            return;
+        }
+        if (pair.previous != null) {
+            pair.previous.following = pair.following;
+        } else {
+            buckets[pair.bucket] = pair.following;
+        }
+        if (pair.following != null) {
+            pair.following.previous = pair.previous;
+        }
+        pair.previous = null;
+        pair.following = null;
+        pair.bucket = 0;
+    }
+
+    /** An item id is the item itself, a larger id the code of the rule it was made for. */
+    private String name(int symbol, List<String> codes) {
+        int itemCount = corpus.items.size();
+        return symbol <= itemCount ? corpus.item(symbol) : codes.get(symbol - itemCount - 1);
+    }
+
+    private static long key(int left, int right) {
+        return (long) left << 32 | right;
+    }
+
+    private void log(String message) {
+        if (config.verbose) {
+            System.out.println(message);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Exact frequencies by scanning every sequence for every query. Sequences left empty by a
+ * removed pattern are dropped. The scan runs on the given pool when there is one.
+ */
+final class SequenceScan implements FrequencySource {
+    private final ForkJoinPool scanPool;
+    private List<String> sequences;
+    private volatile long[] ends; // running token totals per sequence, built on the first sample
+
+    SequenceScan(List<String> sequences, ForkJoinPool scanPool) {
+        this.sequences = new ArrayList<>(sequences);
+        this.scanPool = scanPool;
+    }
+
+    @Override
+    public int count(String[] pattern) {
+        if (scanPool != null) {
+            return scanPool.submit(() -> sequences.parallelStream().mapToInt(s -> countMatches(s, pattern)).sum()).join();
+        }
+        int count = 0;
+        for (String sequence : sequences) {
+            count += countMatches(sequence, pattern);
+        }
+        return count;
+    }
+
+    /**
+     * Splits every sequence once and tries at each position only the patterns starting with the
+     * item found there, so a population costs one pass instead of one pass per candidate.
+     */
+    @Override
+    public int[] evaluateBatch(String[][] patterns) {
+        Map<String, List<Integer>> byFirstItem = new HashMap<>();
+        for (int p = 0; p < patterns.length; p++) {
+            byFirstItem.computeIfAbsent(patterns[p][0], k -> new ArrayList<>()).add(p);
+        }
+        if (scanPool != null) {
+            return scanPool.submit(() -> sequences.parallelStream().collect(
+                () -> new int[patterns.length],
+                (counts, sequence) -> countAll(sequence, patterns, byFirstItem, counts),
+                (a, b) -> {
+                    for (int p = 0; p < a.length; p++) {
+                        a[p] += b[p];
+                    }
+                })).join();
+        }
+        int[] counts = new int[patterns.length];
+        for (String sequence : sequences) {
+            countAll(sequence, patterns, byFirstItem, counts);
+        }
+        return counts;
+    }
+
+    @Override
+    public void removePattern(String[] pattern) {
+        List<String> newSequences = new ArrayList<>();
+
+        for (String sequence : sequences) {
+            String[] tokens = sequence.trim().split("\\s+");
+            String newSequence = String.join(" ", replacePatternWithEmpty(tokens, pattern));
+            if (!newSequence.trim().isEmpty()) {
+                newSequences.add(newSequence);
+            }
+        }
+
+        sequences = newSequences;
+        ends = null;
+    }
+
+    @Override
+    public String[] sample(int length, Random random) {
+        long[] ends = this.ends;
+        if (ends == null) { // built locally so that searches sampling at once never see a partial array
+            ends = new long[sequences.size()];
+            long total = 0;
+            for (int s = 0; s < ends.length; s++) {
+                String sequence = sequences.get(s);
+                if (!sequence.isEmpty()) {
+                    total += sequence.chars().filter(c -> c == ' ').count() + 1;
+                }
+                ends[s] = total;
+            }
+            this.ends = ends;
+        }
+        if (ends.length == 0 || ends[ends.length - 1] == 0) {
+            return null;
+        }
+        for (int attempt = 0; attempt < SAMPLE_ATTEMPTS; attempt++) {
+            long position = (long) (random.nextDouble() * ends[ends.length - 1]);
+            int s = 0;
+            int high = ends.length - 1;
+            while (s < high) { // first sequence ending after the position
+                int mid = (s + high) >>> 1;
+                if (ends[mid] > position) {
+                    high = mid;
+                } else {
+                    s = mid + 1;
+                }
+            }
+            String[] tokens = sequences.get(s).split(" ");
+            int start = (int) (position - (s == 0 ? 0 : ends[s - 1]));
+            if (start + length <= tokens.length) {
+                return Arrays.copyOfRange(tokens, start, start + length);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> sequences() {
+        return new ArrayList<>(sequences);
+    }
+
+    private static int countMatches(String sequence, String[] pattern) {
+        return countMatches(sequence.trim().split("\\s+"), pattern);
+    }
+
+    /** Adds the non-overlapping occurrences of every pattern in one sequence to counts. */
+    private static void countAll(String sequence, String[][] patterns, Map<String, List<Integer>> byFirstItem, int[] counts) {
+        String[] tokens = sequence.trim().split("\\s+");
+        int[] nextFree = new int[patterns.length];
+        for (int i = 0; i < tokens.length; i++) {
+            List<Integer> candidates = byFirstItem.get(tokens[i]);
+            if (candidates == null) {
+                continue;
+            }
+            for (int p : candidates) {
+                if (i >= nextFree[p] && isContiguousMatch(tokens, i, patterns[p])) {
+                    counts[p]++;
+                    nextFree[p] = i + patterns[p].length;
+                }
+            }
+        }
+    }
+
+    static int countMatches(List<String[]> sequences, String[] pattern) {
+        int count = 0;
+        for (String[] tokens : sequences) {
+            count += countMatches(tokens, pattern);
+        }
+        return count;
+    }
+
+    static int countMatches(String[] tokens, String[] pattern) {
+        int count = 0;
+        for (int i = 0; i <= tokens.length - pattern.length; i++) {
+            if (isContiguousMatch(tokens, i, pattern)) {
+                count++;
+                i += pattern.length - 1; // Skip to avoid overlapping matches
+            }
+        }
+        return count;
+    }
+
+    static List<String> replacePatternWithEmpty(String[] tokens, String[] pattern) {
+        List<String> result = new ArrayList<>();
+        int i = 0;
+
+        while (i < tokens.length) {
+            if (i <= tokens.length - pattern.length && isContiguousMatch(tokens, i, pattern)) {
+                i += pattern.length;
+            } else {
+                result.add(tokens[i]);
+                i++;
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isContiguousMatch(String[] tokens, int start, String[] pattern) {
+        if (start + pattern.length > tokens.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (!tokens[start + i].equals(pattern[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package MMSC;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * N-gram counts over the last N sequences of a stream. Adding a sequence to a full window
+ * subtracts the n-grams of the oldest one, and n-grams whose count drops to zero are forgotten,
+ * so memory is bounded by the window contents however long the stream runs.
+ * Counts are answered from the index in constant time and include overlapping occurrences, so
+ * the winning pattern of a search is verified with an exact non-overlapping scan of the window,
+ * the count that removal and encoding go by.
+ */
+final class SlidingWindowIndex implements FrequencySource {
+    static final int MIN_PATTERN_LENGTH = 2;
+
+    private final int capacity;
+    private final Deque<String[]> window = new ArrayDeque<>();
+    private final NGramIndex index;
+
+    SlidingWindowIndex(int capacity, int maxLength) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.index = new NGramIndex(MIN_PATTERN_LENGTH, maxLength);
+    }
+
+    /** A window holding the last capacity of the given sequences. */
+    static SlidingWindowIndex of(List<String> sequences, int capacity, int maxLength) {
+        SlidingWindowIndex windowIndex = new SlidingWindowIndex(capacity, maxLength);
+        for (String sequence : sequences.subList(Math.max(0, sequences.size() - capacity), sequences.size())) {
+            windowIndex.add(sequence.trim().split("\\s+"));
+        }
+        return windowIndex;
+    }
+
+    /** Slides the window forward by one sequence. */
+    void add(String[] items) {
+        if (window.size() == capacity) {
+            index.remove(window.removeFirst());
+        }
+        window.addLast(items);
+        index.add(items);
+    }
+
+    @Override
+    public int count(String[] pattern) {
+        return index.count(pattern);
+    }
+
+    @Override
+    public int verify(String[] pattern, int estimate) {
+        int count = 0;
+        for (String[] items : window) {
+            count += SequenceScan.countMatches(items, pattern);
+        }
+        return count;
+    }
+
+    /** Rewrites every sequence of the window without the pattern and recounts only those that changed. */
+    @Override
+    public void removePattern(String[] pattern) {
+        int size = window.size();
+        for (int i = 0; i < size; i++) {
+            String[] items = window.removeFirst();
+            if (SequenceScan.countMatches(items, pattern) > 0) {
+                index.remove(items);
+                items = SequenceScan.replacePatternWithEmpty(items, pattern).toArray(new String[0]);
+                index.add(items);
+            }
+            window.addLast(items);
+        }
+    }
+
+    @Override
+    public List<String> sequences() {
+        List<String> sequences = new ArrayList<>(window.size());
+        for (String[] items : window) {
+            if (items.length > 0) {
+                sequences.add(String.join(" ", items));
+            }
+        }
+        return sequences;
+    }
+
+    List<String[]> best(int limit, Set<String> excluded) {
+        return index.best(limit, excluded);
+    }
+}
@@ -0,0 +1,166 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Which items follow which in the current sequences, with counts, for move operators that stay on
+ * patterns the corpus can contain. An item seen once, or a pair seen once, cannot be part of a
+ * pattern that occurs twice, so both are left out: the alphabet holds the items seen at least
+ * twice and the edges the pairs seen at least twice. All draws are weighted by count.
+ */
+final class SuccessorGraph {
+    private final Map<String, Edges> successors = new HashMap<>();
+    private final Map<String, Edges> predecessors = new HashMap<>();
+    private final Edges alphabet;
+
+    SuccessorGraph(List<String> sequences) {
+        Map<String, Integer> itemCounts = new HashMap<>();
+        Map<String, Map<String, Integer>> next = new HashMap<>();
+        Map<String, Map<String, Integer>> previous = new HashMap<>();
+        for (String sequence : sequences) {
+            String[] items = sequence.trim().split("\\s+");
+            for (int i = 0; i < items.length; i++) {
+                if (items[i].isEmpty()) {
+                    continue;
+                }
+                itemCounts.merge(items[i], 1, Integer::sum);
+                if (i > 0) {
+                    next.computeIfAbsent(items[i - 1], k -> new HashMap<>()).merge(items[i], 1, Integer::sum);
+                    previous.computeIfAbsent(items[i], k -> new HashMap<>()).merge(items[i - 1], 1, Integer::sum);
+                }
+            }
+        }
+        alphabet = new Edges(itemCounts);
+        for (Map.Entry<String, Map<String, Integer>> entry : next.entrySet()) {
+            Edges edges = new Edges(entry.getValue());
+            if (edges.items.size() > 0) {
+                successors.put(entry.getKey(), edges);
+            }
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : previous.entrySet()) {
+            Edges edges = new Edges(entry.getValue());
+            if (edges.items.size() > 0) {
+                predecessors.put(entry.getKey(), edges);
+            }
+        }
+    }
+
+    /** Items seen at least twice, in no particular order. */
+    List<String> alphabet() {
+        return alphabet.items;
+    }
+
+    String randomItem(Random random) {
+        return alphabet.draw(random);
+    }
+
+    /** A successor of the item, or null if no pair starting with it was seen twice. */
+    String successor(String item, Random random) {
+        Edges edges = successors.get(item);
+        return edges == null ? null : edges.draw(random);
+    }
+
+    /** A predecessor of the item, or null if no pair ending with it was seen twice. */
+    String predecessor(String item, Random random) {
+        Edges edges = predecessors.get(item);
+        return edges == null ? null : edges.draw(random);
+    }
+
+    boolean follows(String item, String successor) {
+        Edges edges = successors.get(item);
+        return edges != null && edges.members.contains(successor);
+    }
+
+    /** A path of the given length: a random start item, then random successors while there are any. */
+    String[] walk(int length, Random random) {
+        String[] path = new String[length];
+        path[0] = randomItem(random);
+        repair(path, random);
+        return path;
+    }
+
+    /**
+     * Replaces every item that does not follow its left neighbour, from left to right, by a
+     * successor of that neighbour. Items after a neighbour without successors stay as they are.
+     */
+    void repair(String[] pattern, Random random) {
+        for (int i = 1; i < pattern.length; i++) {
+            if (!follows(pattern[i - 1], pattern[i])) {
+                String successor = successor(pattern[i - 1], random);
+                if (successor != null) {
+                    pattern[i] = successor;
+                }
+            }
+        }
+    }
+
+    /**
+     * The items one search draws from, numbered for the moves by position: all items of the corpus,
+     * or with --moves graph the alphabet of the graph of the current sequences, unless it is empty.
+     */
+    static final class SearchItems {
+        final List<String> items;
+        final SuccessorGraph graph; // null unless --moves graph
+        private final Map<String, Integer> index = new HashMap<>();
+
+        SearchItems(Config config, Collection<String> corpusItems, FrequencySource source) {
+            graph = config.moves.equals("graph") ? new SuccessorGraph(source.sequences()) : null;
+            items = new ArrayList<>(graph != null && !graph.alphabet().isEmpty() ? graph.alphabet() : corpusItems);
+            for (int i = 0; i < items.size(); i++) {
+                index.put(items.get(i), i);
+            }
+        }
+
+        /** Position of the item in {@link #items}, -1 if it is not there. */
+        int indexOf(String item) {
+            return index.getOrDefault(item, -1);
+        }
+    }
+
+    /** Items with their counts, those seen once left out, drawn by a binary search over running totals. */
+    private static final class Edges {
+        final List<String> items = new ArrayList<>();
+        final Set<String> members = new HashSet<>();
+        final long[] totals;
+
+        Edges(Map<String, Integer> counts) {
+            long[] running = new long[counts.size()];
+            long total = 0;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() >= 2) {
+                    total += entry.getValue();
+                    running[items.size()] = total;
+                    members.add(entry.getKey());
+                    items.add(entry.getKey());
+                }
+            }
+            totals = Arrays.copyOf(running, items.size());
+        }
+
+        String draw(Random random) {
+            if (items.isEmpty()) {
+                return null;
+            }
+            long target = (long) (random.nextDouble() * totals[totals.length - 1]);
+            int low = 0;
+            int high = totals.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (totals[mid] > target) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return items.get(low);
+        }
+    }
+}
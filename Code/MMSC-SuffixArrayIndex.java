@@ -0,0 +1,291 @@
+package MMSC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Suffix array with LCP array over the integer-encoded corpus: all sequences concatenated, each
+ * followed by a 0 separator, items numbered by {@link Corpus#id(String)}. The occurrences of a
+ * pattern of any length m form one range of the suffix array, found by two binary searches in
+ * O(m log n), so evaluating a candidate never scans the corpus.
+ *
+ * The suffix array is built by prefix doubling with radix sorting in O(n log n) and the LCP array
+ * by Kasai's algorithm in O(n); both are rebuilt after a found pattern is removed. The largest LCP
+ * value is the longest substring that occurs twice, which bounds the useful pattern length.
+ */
+final class SuffixArrayIndex implements FrequencySource {
+    private final Corpus corpus;
+    private final List<int[]> sequences = new ArrayList<>();
+    private int[] text;
+    private int[] suffixArray;
+    private int longestRepeat;
+
+    SuffixArrayIndex(Corpus corpus, List<String> sequences) {
+        this.corpus = corpus;
+        for (String sequence : sequences) {
+            String[] items = sequence.trim().split("\\s+");
+            int[] ids = new int[items.length];
+            for (int i = 0; i < items.length; i++) {
+                ids[i] = corpus.id(items[i]);
+            }
+            this.sequences.add(ids);
+        }
+        build();
+    }
+
+    /** Counts non-overlapping occurrences, leftmost first within each sequence, as a scan would. */
+    @Override
+    public int count(String[] pattern) {
+        int[] ids = new int[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            ids[i] = corpus.id(pattern[i]);
+            if (ids[i] == 0) {
+                return 0;
+            }
+        }
+        int from = lowerBound(ids, false);
+        int to = lowerBound(ids, true);
+        if (to - from <= 1 || !overlapsItself(ids)) {
+            return to - from;
+        }
+
+        // A pattern that can overlap itself: keep only the occurrences a left-to-right scan takes
+        int[] positions = Arrays.copyOfRange(suffixArray, from, to);
+        Arrays.sort(positions);
+        int count = 0;
+        int nextFree = 0;
+        for (int position : positions) {
+            if (position >= nextFree) {
+                count++;
+                nextFree = position + ids.length;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void removePattern(String[] pattern) {
+        int[] ids = new int[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            ids[i] = corpus.id(pattern[i]);
+        }
+        boolean changed = false;
+        for (int s = sequences.size() - 1; s >= 0; s--) {
+            int[] sequence = sequences.get(s);
+            int[] remaining = new int[sequence.length];
+            int length = 0;
+            int i = 0;
+            while (i < sequence.length) {
+                if (matchesAt(sequence, i, ids)) {
+                    i += ids.length;
+                } else {
+                    remaining[length++] = sequence[i++];
+                }
+            }
+            if (length == sequence.length) {
+                continue;
+            }
+            changed = true;
+            if (length == 0) {
+                sequences.remove(s);
+            } else {
+                sequences.set(s, Arrays.copyOf(remaining, length));
+            }
+        }
+        if (changed) {
+            build();
+        }
+    }
+
+    @Override
+    public String[] sample(int length, Random random) {
+        return FrequencySource.sampleIds(corpus, text, length, random);
+    }
+
+    @Override
+    public List<String> sequences() {
+        List<String> result = new ArrayList<>(sequences.size());
+        StringBuilder line = new StringBuilder();
+        for (int[] sequence : sequences) {
+            line.setLength(0);
+            for (int id : sequence) {
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(corpus.item(id));
+            }
+            result.add(line.toString());
+        }
+        return result;
+    }
+
+    @Override
+    public int longestRepeat() {
+        return longestRepeat;
+    }
+
+    private void build() {
+        int n = 0;
+        for (int[] sequence : sequences) {
+            n += sequence.length + 1;
+        }
+        text = new int[n];
+        int position = 0;
+        for (int[] sequence : sequences) {
+            System.arraycopy(sequence, 0, text, position, sequence.length);
+            position += sequence.length + 1; // separator 0
+        }
+        suffixArray = buildSuffixArray(text, corpus.items.size() + 1);
+        longestRepeat = 0;
+        for (int value : buildLcp(text, suffixArray)) {
+            longestRepeat = Math.max(longestRepeat, value);
+        }
+    }
+
+    /** Prefix doubling: sorts suffixes by their first 2k items using the ranks for k, two counting sorts per round. */
+    static int[] buildSuffixArray(int[] text, int alphabetSize) {
+        int n = text.length;
+        int[] suffixArray = new int[n];
+        int[] rank = new int[n];
+        int[] temp = new int[n];
+        int[] counts = new int[Math.max(alphabetSize, n) + 1];
+        if (n == 0) {
+            return suffixArray;
+        }
+
+        for (int value : text) {
+            counts[value]++;
+        }
+        for (int i = 1; i < alphabetSize; i++) {
+            counts[i] += counts[i - 1];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            suffixArray[--counts[text[i]]] = i;
+        }
+        System.arraycopy(text, 0, rank, 0, n);
+        int classes = alphabetSize;
+
+        for (int k = 1; k < n; k <<= 1) {
+            // Order by the second half: suffixes without one come first, the rest follow the current order
+            int p = 0;
+            for (int i = n - k; i < n; i++) {
+                temp[p++] = i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (suffixArray[i] >= k) {
+                    temp[p++] = suffixArray[i] - k;
+                }
+            }
+            // Stable counting sort by the first half
+            Arrays.fill(counts, 0, classes + 1, 0);
+            for (int i = 0; i < n; i++) {
+                counts[rank[i]]++;
+            }
+            for (int i = 1; i < classes; i++) {
+                counts[i] += counts[i - 1];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                suffixArray[--counts[rank[temp[i]]]] = temp[i];
+            }
+            // New ranks: equal first and second halves share a class
+            temp[suffixArray[0]] = 0;
+            classes = 1;
+            for (int i = 1; i < n; i++) {
+                int previous = suffixArray[i - 1];
+                int current = suffixArray[i];
+                int previousSecond = previous + k < n ? rank[previous + k] : -1;
+                int currentSecond = current + k < n ? rank[current + k] : -1;
+                if (rank[previous] != rank[current] || previousSecond != currentSecond) {
+                    classes++;
+                }
+                temp[current] = classes - 1;
+            }
+            int[] swap = rank;
+            rank = temp;
+            temp = swap;
+            if (classes == n) {
+                break;
+            }
+        }
+        return suffixArray;
+    }
+
+    /** Kasai: lcp[i] is the common prefix of suffixes i-1 and i, never extended over a separator. */
+    static int[] buildLcp(int[] text, int[] suffixArray) {
+        int n = text.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[suffixArray[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = suffixArray[rank[i] - 1];
+            while (i + h < n && j + h < n && text[i + h] == text[j + h] && text[i + h] != 0) {
+                h++;
+            }
+            lcp[rank[i]] = h;
+            if (h > 0) {
+                h--;
+            }
+        }
+        return lcp;
+    }
+
+    /** First suffix not below the pattern, or with upper set, the first suffix that does not start with it. */
+    private int lowerBound(int[] pattern, boolean upper) {
+        int low = 0;
+        int high = suffixArray.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compare(suffixArray[mid], pattern);
+            if (comparison < 0 || (upper && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Compares the first m items of a suffix with the pattern; 0 means the suffix starts with it. */
+    private int compare(int suffix, int[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (suffix + i >= text.length) {
+                return -1;
+            }
+            int difference = Integer.compare(text[suffix + i], pattern[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean overlapsItself(int[] pattern) {
+        for (int shift = 1; shift < pattern.length; shift++) {
+            if (matchesAt(pattern, shift, Arrays.copyOf(pattern, pattern.length - shift))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAt(int[] sequence, int start, int[] pattern) {
+        if (start + pattern.length > sequence.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (sequence[start + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
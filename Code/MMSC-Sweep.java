@@ -0,0 +1,330 @@
+package MMSC;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parameter sweep over HOA, GA and PSO for the speed/ratio trade-off.
+ * Every point of a parameter grid (or a random sample of it) is mined on every .dat file of the
+ * input folder, with the runs of one dataset executed in parallel against a single parsed corpus.
+ * Writes sweep.csv with all runs and pareto.csv with the runs on the ratio/time Pareto frontier
+ * of each dataset. With --checkpoint, runs already recorded in sweep.csv are skipped and
+ * interrupted runs continue from their checkpoints.
+ *
+ * Example: {@code --folder Datasets/ --algorithms HOA,GA --grid "population=20,50;iterations=25,100;ctl=2,4,8"}
+ * Any other option is a {@link Config} option shared by all runs.
+ */
+public class Sweep {
+    static final String USAGE =
+        "Sweep options:\n"
+        + "  --algorithms HOA,GA,PSO   miners to sweep (default all three)\n"
+        + "  --grid \"key=v1,v2;key=v1\" parameter grid, keys are Config options (default ctl=2,4,8)\n"
+        + "  --samples <n>             run a random sample of n grid points per algorithm (0 = full grid)\n"
+        + "  --workers <n>             runs executed in parallel (default: available processors)\n"
+        + "  --sweep-budget <ms>       time budget for the whole sweep: runs in progress encode what they have\n"
+        + "                            found when it ends and runs not yet started are skipped (0 = unlimited)\n"
+        + "  --output <dir>            sweep folder (default <folder>/sweep/)\n";
+
+    private static final String HEADER = "Dataset,Algorithm,Parameters,CTL,CompressionRatio,ExecutionTime(ms),BudgetHit\n";
+    private static final Set<String> HOA_KEYS = Set.of("foraging", "territory", "leadership");
+    private static final Set<String> GA_KEYS = Set.of("mutation", "tournament");
+    private static final Set<String> PSO_KEYS = Set.of("c1", "c2", "inertia");
+
+    static class SweepResult {
+        final String dataset;
+        final String algorithm;
+        final String parameters;
+        final int ctl;
+        final double compressionRatio;
+        final long executionTime;
+        final boolean budgetHit;
+
+        SweepResult(String dataset, String algorithm, String parameters, int ctl, double compressionRatio,
+                    long executionTime, boolean budgetHit) {
+            this.dataset = dataset;
+            this.algorithm = algorithm;
+            this.parameters = parameters;
+            this.ctl = ctl;
+            this.compressionRatio = compressionRatio;
+            this.executionTime = executionTime;
+            this.budgetHit = budgetHit;
+        }
+
+        String key() {
+            return dataset + "," + algorithm + "," + parameters + "," + ctl;
+        }
+
+        String toCsv() {
+            return String.format("%s,%s,%s,%d,%.4f,%d,%b", dataset, algorithm, parameters, ctl, compressionRatio,
+                executionTime, budgetHit);
+        }
+
+        static SweepResult parse(String row) {
+            String[] columns = row.split(",");
+            return new SweepResult(columns[0], columns[1], columns[2], Integer.parseInt(columns[3]),
+                Double.parseDouble(columns[4]), Long.parseLong(columns[5]),
+                columns.length > 6 && Boolean.parseBoolean(columns[6])); // sweeps before BudgetHit had six columns
+        }
+    }
+
+    public static void main(String[] args) {
+        Properties options;
+        String[] algorithms;
+        List<Map<String, String>> grid;
+        int samples;
+        int workers;
+        long sweepBudget;
+        Config base;
+        Map<String, List<Map<String, String>>> pointsByAlgorithm = new LinkedHashMap<>();
+        try {
+            options = Config.readOptions(args);
+            algorithms = options.getProperty("algorithms", "HOA,GA,PSO").split(",");
+            grid = expandGrid(options.getProperty("grid", "ctl=2,4,8"));
+            samples = Integer.parseInt(options.getProperty("samples", "0"));
+            workers = Integer.parseInt(options.getProperty("workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+            sweepBudget = Long.parseLong(options.getProperty("sweep-budget", "0"));
+            for (String key : new String[]{"algorithms", "grid", "samples", "workers", "sweep-budget"}) {
+                options.remove(key);
+            }
+            base = Config.fromOptions(algorithms[0].trim(), options);
+
+            // Build the run configurations once, they are the same for every dataset
+            Random sampler = base.newRandom();
+            for (String algorithm : algorithms) {
+                String name = algorithm.trim().toUpperCase();
+                List<Map<String, String>> points = relevantPoints(grid, name);
+                if (samples > 0 && samples < points.size()) {
+                    Collections.shuffle(points, sampler);
+                    points = new ArrayList<>(points.subList(0, samples));
+                }
+                for (Map<String, String> point : points) {
+                    Properties check = new Properties();
+                    check.putAll(options);
+                    check.putAll(point);
+                    Config.fromOptions(name, check); // fail early on invalid grid values
+                }
+                pointsByAlgorithm.put(name, points);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.err.print(Config.USAGE);
+            return;
+        }
+
+        String sweepFolder = options.containsKey("output") ? base.outputFolder : base.folderPath + "sweep/";
+        new File(sweepFolder).mkdirs();
+        String sweepCsv = sweepFolder + "sweep.csv";
+        String paretoCsv = sweepFolder + "pareto.csv";
+        // With --checkpoint, runs already in sweep.csv are kept and not repeated
+        Map<String, List<SweepResult>> resultsByDataset = new LinkedHashMap<>();
+        Set<String> completed = new HashSet<>();
+        try {
+            if (base.checkpoint && new File(sweepCsv).length() > 0) {
+                for (String row : Checkpoint.rows(sweepCsv)) {
+                    SweepResult result = SweepResult.parse(row);
+                    resultsByDataset.computeIfAbsent(result.dataset, k -> new ArrayList<>()).add(result);
+                    completed.add(result.key());
+                }
+                System.out.println("Resuming with " + completed.size() + " finished runs in " + sweepCsv);
+            } else {
+                writeLines(sweepCsv, HEADER, Collections.emptyList(), false);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error initializing sweep CSV files: " + e.getMessage());
+            return;
+        }
+
+        File[] files = new File(base.folderPath).listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null || files.length == 0) {
+            System.err.println("No .dat files found in " + base.folderPath);
+            return;
+        }
+
+        long sweepDeadline = sweepBudget > 0 ? System.currentTimeMillis() + sweepBudget : 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers));
+        try {
+            for (File file : files) {
+                Corpus corpus;
+                try {
+                    corpus = Corpus.load(file, base.storage.equals("offheap"));
+                } catch (IOException e) {
+                    System.err.println("Error reading file " + file.getName() + ": " + e.getMessage());
+                    continue;
+                }
+                System.out.println("\nSweeping dataset: " + corpus.datasetName);
+
+                List<Future<List<SweepResult>>> futures = new ArrayList<>();
+                for (Map.Entry<String, List<Map<String, String>>> entry : pointsByAlgorithm.entrySet()) {
+                    String algorithm = entry.getKey();
+                    List<Map<String, String>> points = entry.getValue();
+                    for (int p = 0; p < points.size(); p++) {
+                        Map<String, String> point = points.get(p);
+                        Properties runOptions = new Properties();
+                        runOptions.putAll(options);
+                        runOptions.putAll(point);
+                        runOptions.setProperty("output", sweepFolder + corpus.datasetName + "/" + algorithm + "-" + p + "/");
+                        runOptions.setProperty("verbose", "false");
+                        runOptions.setProperty("threads", "1");
+                        Config config = Config.fromOptions(algorithm, runOptions);
+                        config.sweepDeadline = sweepDeadline;
+                        String parameters = describe(point);
+                        futures.add(executor.submit(() -> runPoint(config, corpus, parameters, completed, sweepCsv)));
+                    }
+                }
+
+                List<SweepResult> results = resultsByDataset.computeIfAbsent(corpus.datasetName, k -> new ArrayList<>());
+                for (Future<List<SweepResult>> future : futures) {
+                    try {
+                        results.addAll(future.get());
+                    } catch (ExecutionException e) {
+                        System.err.println("Sweep run failed on " + corpus.datasetName + ": " + e.getCause());
+                    }
+                }
+
+                for (SweepResult result : paretoFrontier(results)) {
+                    System.out.printf("Pareto: %s %s CTL=%d ratio=%.2f time=%dms\n", result.algorithm,
+                        result.parameters, result.ctl, result.compressionRatio, result.executionTime);
+                }
+
+                // Rewrite the frontier of every dataset seen so far
+                List<String> frontier = new ArrayList<>();
+                for (List<SweepResult> datasetResults : resultsByDataset.values()) {
+                    for (SweepResult result : paretoFrontier(datasetResults)) {
+                        frontier.add(result.toCsv());
+                    }
+                }
+                try {
+                    writeLines(paretoCsv, HEADER, frontier, false);
+                } catch (IOException e) {
+                    System.err.println("Error writing Pareto frontier for " + corpus.datasetName + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        if (sweepDeadline > 0 && System.currentTimeMillis() >= sweepDeadline) {
+            System.out.println("\nSweep budget of " + sweepBudget + " ms spent, runs not started by then were skipped;"
+                + " rerun with --checkpoint true to continue them");
+        }
+    }
+
+    private static List<SweepResult> runPoint(Config config, Corpus corpus, String parameters,
+                                              Set<String> completed, String sweepCsv) throws IOException {
+        List<SweepResult> results = new ArrayList<>();
+        new File(config.outputFolder).mkdirs();
+        Miner miner = Miner.create(config, corpus, null);
+        for (int CTL : config.ctlValues) {
+            if (completed.contains(corpus.datasetName + "," + config.algorithm + "," + parameters + "," + CTL)) {
+                continue;
+            }
+            if (config.sweepDeadline > 0 && System.currentTimeMillis() >= config.sweepDeadline) {
+                break;
+            }
+            File checkpointFile = Checkpoint.file(config, corpus.datasetName, CTL);
+            long startTime = System.currentTimeMillis()
+                - (config.checkpoint ? Checkpoint.elapsedMillis(checkpointFile) : 0);
+            double compressionRatio = miner.mine(CTL);
+            long totalTime = System.currentTimeMillis() - startTime;
+            SweepResult result = new SweepResult(corpus.datasetName, config.algorithm, parameters, CTL, compressionRatio,
+                totalTime, miner.budgetHit());
+            // Record every run as soon as it finishes so an interrupted sweep loses at most the runs in flight
+            synchronized (Sweep.class) {
+                writeLines(sweepCsv, null, Collections.singletonList(result.toCsv()), true);
+            }
+            checkpointFile.delete();
+            results.add(result);
+        }
+        return results;
+    }
+
+    /** Runs that no other run beats on both compression ratio and execution time, fastest first. */
+    static List<SweepResult> paretoFrontier(List<SweepResult> results) {
+        List<SweepResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingLong((SweepResult r) -> r.executionTime)
+            .thenComparing(r -> -r.compressionRatio));
+        List<SweepResult> frontier = new ArrayList<>();
+        double bestRatio = Double.NEGATIVE_INFINITY;
+        for (SweepResult result : sorted) {
+            if (result.compressionRatio > bestRatio) {
+                frontier.add(result);
+                bestRatio = result.compressionRatio;
+            }
+        }
+        return frontier;
+    }
+
+    /** Expands "a=1,2;b=3" into the cartesian product [{a=1,b=3}, {a=2,b=3}]. */
+    static List<Map<String, String>> expandGrid(String spec) {
+        List<Map<String, String>> points = new ArrayList<>();
+        points.add(new LinkedHashMap<>());
+        for (String dimension : spec.split(";")) {
+            if (dimension.trim().isEmpty()) {
+                continue;
+            }
+            int eq = dimension.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid grid dimension: " + dimension);
+            }
+            String key = dimension.substring(0, eq).trim();
+            List<Map<String, String>> expanded = new ArrayList<>();
+            for (Map<String, String> point : points) {
+                for (String value : dimension.substring(eq + 1).split(",")) {
+                    Map<String, String> next = new LinkedHashMap<>(point);
+                    next.put(key, value.trim());
+                    expanded.add(next);
+                }
+            }
+            points = expanded;
+        }
+        return points;
+    }
+
+    /** Drops grid dimensions that belong to another algorithm and the duplicate points they leave behind. */
+    private static List<Map<String, String>> relevantPoints(List<Map<String, String>> grid, String algorithm) {
+        Set<Map<String, String>> points = new LinkedHashSet<>();
+        for (Map<String, String> point : grid) {
+            Map<String, String> relevant = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : point.entrySet()) {
+                String key = entry.getKey();
+                boolean foreign = (HOA_KEYS.contains(key) && !algorithm.equals("HOA"))
+                    || (GA_KEYS.contains(key) && !algorithm.equals("GA"))
+                    || (PSO_KEYS.contains(key) && !algorithm.equals("PSO"));
+                if (!foreign) {
+                    relevant.put(key, entry.getValue());
+                }
+            }
+            points.add(relevant);
+        }
+        return new ArrayList<>(points);
+    }
+
+    private static String describe(Map<String, String> point) {
+        StringJoiner joiner = new StringJoiner(";");
+        for (Map.Entry<String, String> entry : point.entrySet()) {
+            joiner.add(entry.getKey() + "=" + entry.getValue());
+        }
+        return joiner.toString();
+    }
+
+    private static void writeLines(String path, String header, List<String> rows, boolean append) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path, append))) {
+            if (header != null) {
+                writer.write(header);
+            }
+            for (String row : rows) {
+                writer.write(row + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package MMSC;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Item ids of a whole corpus in direct (off-heap) memory, in the layout of {@link TokenStore}:
+ * every sequence followed by a 0 separator, plus the start offset of each sequence. The garbage
+ * collector sees two buffer objects instead of one String per sequence, so a corpus of millions
+ * of tokens costs four bytes per token outside the heap and only its dictionary inside.
+ */
+final class TokenBuffer {
+    private IntBuffer tokens = allocate(1 << 16);
+    private IntBuffer starts = allocate(1 << 10);
+    private int length;
+    private int sequenceCount;
+
+    /** A native-order int buffer of the given capacity outside the Java heap. */
+    static IntBuffer allocate(int capacity) {
+        return allocateBytes(capacity).asIntBuffer();
+    }
+
+    /** The same memory as bytes, which the SIMD matcher loads from directly. */
+    static ByteBuffer allocateBytes(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /** Appends a sequence made of the first count ids, all positive, and its separator. */
+    void add(int[] ids, int count) {
+        tokens = ensure(tokens, length, count + 1);
+        starts = ensure(starts, sequenceCount, 1);
+        starts.put(sequenceCount++, length);
+        for (int i = 0; i < count; i++) {
+            tokens.put(length++, ids[i]);
+        }
+        tokens.put(length++, 0);
+    }
+
+    int get(int position) {
+        return tokens.get(position);
+    }
+
+    /** Number of ids including the separators. */
+    int length() {
+        return length;
+    }
+
+    int sequenceCount() {
+        return sequenceCount;
+    }
+
+    int start(int sequence) {
+        return starts.get(sequence);
+    }
+
+    /** Position of the separator that ends the sequence. */
+    int end(int sequence) {
+        return (sequence + 1 < sequenceCount ? starts.get(sequence + 1) : length) - 1;
+    }
+
+    /** The ids themselves, read-only, for a store that never writes to them. */
+    IntBuffer view() {
+        return tokens.asReadOnlyBuffer();
+    }
+
+    /** A new off-heap buffer holding a copy of all ids, for a store that removes patterns in place. */
+    ByteBuffer copyTokens() {
+        ByteBuffer copy = allocateBytes(Math.max(1, length));
+        IntBuffer source = tokens.duplicate();
+        source.position(0).limit(length);
+        copy.asIntBuffer().put(source);
+        return copy;
+    }
+
+    private static IntBuffer ensure(IntBuffer buffer, int used, int needed) {
+        if (used + needed <= buffer.capacity()) {
+            return buffer;
+        }
+        long capacity = Math.max((long) buffer.capacity() * 2, (long) used + needed);
+        if (capacity > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new IllegalStateException("Corpus too large for an off-heap token buffer: " + capacity + " ids");
+        }
+        IntBuffer grown = allocate((int) capacity);
+        IntBuffer source = buffer.duplicate();
+        source.position(0).limit(used);
+        grown.put(source);
+        grown.clear();
+        return grown;
+    }
+}
@@ -0,0 +1,76 @@
+package MMSC;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts non-overlapping occurrences of an integer pattern in a flat token array, as used by
+ * {@link TokenStore}. The pattern never contains 0, so matches cannot cross the 0 separators.
+ */
+interface TokenMatcher {
+    int count(int[] tokens, int length, int[] pattern);
+
+    /** The same count over ids held as native-order ints in a (direct) byte buffer, see {@link TokenBuffer}. */
+    default int count(ByteBuffer tokens, int length, int[] pattern) {
+        int first = pattern[0];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (tokens.getInt(i * Integer.BYTES) == first && matchesRest(tokens, length, i, pattern)) {
+                count++;
+                i += pattern.length - 1; // Skip to avoid overlapping matches
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The SIMD matcher if the Vector API is available (run with --add-modules jdk.incubator.vector),
+     * else the scalar loop.
+     */
+    static TokenMatcher create() {
+        try {
+            return (TokenMatcher) Class.forName("MMSC.VectorMatcher").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Scalar();
+        }
+    }
+
+    /** Confirms the rest of the pattern at a position whose first token already matched. */
+    static boolean matchesRest(int[] tokens, int length, int start, int[] pattern) {
+        if (start + pattern.length > length) {
+            return false;
+        }
+        for (int i = 1; i < pattern.length; i++) {
+            if (tokens[start + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean matchesRest(ByteBuffer tokens, int length, int start, int[] pattern) {
+        if (start + pattern.length > length) {
+            return false;
+        }
+        for (int i = 1; i < pattern.length; i++) {
+            if (tokens.getInt((start + i) * Integer.BYTES) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    final class Scalar implements TokenMatcher {
+        @Override
+        public int count(int[] tokens, int length, int[] pattern) {
+            int first = pattern[0];
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                if (tokens[i] == first && matchesRest(tokens, length, i, pattern)) {
+                    count++;
+                    i += pattern.length - 1; // Skip to avoid overlapping matches
+                }
+            }
+            return count;
+        }
+    }
+}
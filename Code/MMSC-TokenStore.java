@@ -0,0 +1,225 @@
+package MMSC;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The current sequences as one flat array of item ids (see {@link Corpus#id(String)}), each
+ * sequence followed by a 0 separator. Counting is a single pass over the array with a
+ * {@link TokenMatcher}, SIMD when available, and removing a pattern compacts the array in place.
+ * For an off-heap corpus the array is an off-heap copy of its {@link TokenBuffer}, which the
+ * SIMD matcher reads in place.
+ *
+ * With tombstones the array is never written: a removed occurrence only sets its positions in a
+ * bitset, and a removed position breaks the sequence like a separator, so items on either side
+ * of it never become adjacent. Counting then skips removed runs in the scalar sweep, and an
+ * off-heap corpus is read in place instead of copied.
+ */
+final class TokenStore implements FrequencySource {
+    private final Corpus corpus;
+    private final TokenMatcher matcher;
+    private final IntBuffer tokens;
+    private final ByteBuffer bytes; // the same ids when they are off the heap, null on the heap
+    private final BitSet removed; // null unless removal leaves tombstones
+    private int length;
+
+    TokenStore(Corpus corpus, List<String> sequences, boolean tombstones) {
+        this.corpus = corpus;
+        this.matcher = TokenMatcher.create();
+        this.removed = tombstones ? new BitSet() : null;
+        if (corpus.tokens != null && sequences == corpus.sequences) {
+            bytes = tombstones ? null : corpus.tokens.copyTokens();
+            tokens = tombstones ? corpus.tokens.view() : bytes.asIntBuffer();
+            length = corpus.tokens.length();
+            return;
+        }
+        int size = 0;
+        List<String[]> split = new ArrayList<>(sequences.size());
+        for (String sequence : sequences) {
+            String[] items = sequence.trim().split("\\s+");
+            split.add(items);
+            size += items.length + 1;
+        }
+        bytes = corpus.tokens != null ? TokenBuffer.allocateBytes(Math.max(1, size)) : null;
+        tokens = bytes != null ? bytes.asIntBuffer() : IntBuffer.allocate(size);
+        for (String[] items : split) {
+            for (String item : items) {
+                tokens.put(length++, corpus.id(item));
+            }
+            tokens.put(length++, 0);
+        }
+    }
+
+    @Override
+    public int count(String[] pattern) {
+        int[] ids = ids(pattern);
+        if (ids == null) {
+            return 0;
+        }
+        if (removed != null) {
+            return countAll(new int[][]{ids})[0];
+        }
+        return bytes != null ? matcher.count(bytes, length, ids) : matcher.count(tokens.array(), length, ids);
+    }
+
+    /**
+     * All counts in one sweep over the array: patterns are chained by their first item id, so each
+     * position only tries the candidates that start with its item.
+     */
+    @Override
+    public int[] evaluateBatch(String[][] patterns) {
+        int[][] ids = new int[patterns.length][];
+        for (int p = 0; p < patterns.length; p++) {
+            ids[p] = ids(patterns[p]);
+        }
+        return countAll(ids);
+    }
+
+    /** Non-overlapping counts of the given id patterns; null patterns count 0. */
+    private int[] countAll(int[][] ids) {
+        int[] counts = new int[ids.length];
+        int[] first = new int[corpus.items.size() + 1]; // item id -> first pattern starting with it
+        int[] next = new int[ids.length];               // pattern -> next pattern with the same first item
+        Arrays.fill(first, -1);
+        for (int p = 0; p < ids.length; p++) {
+            if (ids[p] != null) {
+                next[p] = first[ids[p][0]];
+                first[ids[p][0]] = p;
+            }
+        }
+        int[] nextFree = new int[ids.length];
+        int nextRemoved = nextRemoved(0);
+        for (int i = 0; i < length; i++) {
+            if (i == nextRemoved) {
+                i = removed.nextClearBit(i) - 1;
+                nextRemoved = nextRemoved(i + 1);
+                continue;
+            }
+            for (int p = first[tokens.get(i)]; p >= 0; p = next[p]) {
+                if (i >= nextFree[p] && i + ids[p].length <= nextRemoved && matchesRest(i, ids[p])) {
+                    counts[p]++;
+                    nextFree[p] = i + ids[p].length;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /** Drops every non-overlapping occurrence and any sequence left empty, in one pass. */
+    @Override
+    public void removePattern(String[] pattern) {
+        int[] ids = ids(pattern);
+        if (ids == null) {
+            return;
+        }
+        if (removed != null) {
+            int nextRemoved = nextRemoved(0);
+            for (int i = 0; i < length; i++) {
+                if (i == nextRemoved) {
+                    i = removed.nextClearBit(i) - 1;
+                    nextRemoved = nextRemoved(i + 1);
+                } else if (tokens.get(i) == ids[0] && i + ids.length <= nextRemoved && matchesRest(i, ids)) {
+                    removed.set(i, i + ids.length);
+                    i += ids.length - 1;
+                    nextRemoved = nextRemoved(i + 1);
+                }
+            }
+            return;
+        }
+        int write = 0;
+        int read = 0;
+        while (read < length) {
+            int token = tokens.get(read);
+            if (token == ids[0] && matchesRest(read, ids)) {
+                read += ids.length;
+            } else if (token == 0 && (write == 0 || tokens.get(write - 1) == 0)) {
+                read++; // separator of a sequence that is now empty
+            } else {
+                tokens.put(write++, token);
+                read++;
+            }
+        }
+        length = write;
+    }
+
+    @Override
+    public String[] sample(int patternLength, Random random) {
+        for (int attempt = 0; length > 0 && attempt < SAMPLE_ATTEMPTS; attempt++) {
+            int start = random.nextInt(length);
+            if (start + patternLength > length || nextRemoved(start) < start + patternLength) {
+                continue;
+            }
+            String[] pattern = new String[patternLength];
+            int i = 0;
+            while (i < patternLength && tokens.get(start + i) != 0) {
+                pattern[i] = corpus.item(tokens.get(start + i));
+                i++;
+            }
+            if (i == patternLength) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> sequences() {
+        List<String> result = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int token = tokens.get(i);
+            if (removed != null && removed.get(i)) {
+                if (line.length() > 0) {
+                    result.add(line.toString()); // a removed occurrence splits the sequence
+                    line.setLength(0);
+                }
+            } else if (token == 0) {
+                if (removed == null || line.length() > 0) {
+                    result.add(line.toString());
+                }
+                line.setLength(0);
+            } else {
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(corpus.item(token));
+            }
+        }
+        return result;
+    }
+
+    /** First removed position at or after from, or Integer.MAX_VALUE if there is none. */
+    private int nextRemoved(int from) {
+        int position = removed == null ? -1 : removed.nextSetBit(from);
+        return position < 0 ? Integer.MAX_VALUE : position;
+    }
+
+    /** Whether the pattern occurs at start, given that its first item does. */
+    private boolean matchesRest(int start, int[] pattern) {
+        if (start + pattern.length > length) {
+            return false;
+        }
+        for (int i = 1; i < pattern.length; i++) {
+            if (tokens.get(start + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] ids(String[] pattern) {
+        int[] ids = new int[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            ids[i] = corpus.id(pattern[i]);
+            if (ids[i] == 0) {
+                return null;
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,41 @@
+package MMSC;
+
+/**
+ * Variable-length search (--genome variable): a candidate holds as many items as the longest
+ * pattern and stands for its best prefix of length 2 or more, scored by the items its occurrences
+ * would replace, count * (length - 1). Candidates of every length then compete in one population
+ * and a single search returns the best pattern over all lengths.
+ */
+final class VariableLength {
+    private VariableLength() {
+    }
+
+    /** The prefixes of length 2 up to the whole genome, shortest first. */
+    static String[][] prefixes(String[] genome) {
+        String[][] prefixes = new String[Math.max(0, genome.length - 1)][];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = new String[i + 2];
+            System.arraycopy(genome, 0, prefixes[i], 0, i + 2);
+        }
+        return prefixes;
+    }
+
+    /** Index of the best prefix given the counts of {@link #prefixes}; the shorter one on ties. */
+    static int best(int[] prefixCounts) {
+        int best = 0;
+        for (int i = 1; i < prefixCounts.length; i++) {
+            if ((long) prefixCounts[i] * (i + 1) > (long) prefixCounts[best] * (best + 1)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    static int fitness(int[] prefixCounts) {
+        if (prefixCounts.length == 0) {
+            return 0;
+        }
+        int best = best(prefixCounts);
+        return (int) Math.min(Integer.MAX_VALUE, (long) prefixCounts[best] * (best + 1));
+    }
+}
@@ -0,0 +1,113 @@
+package MMSC;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD pattern matcher: compares a whole vector of start positions at a time, one shifted load per
+ * pattern token up to the fourth, so a lane survives only if the pattern starts there; tokens
+ * beyond the fourth are confirmed per surviving lane. The scalar part only
+ * walks the surviving lanes to drop overlapping occurrences. Off-heap ids are loaded straight
+ * from their direct buffer with the same shifted loads. Needs the incubating
+ * Vector API, so this class is compiled and run with --add-modules jdk.incubator.vector; it is
+ * loaded reflectively by {@link TokenMatcher#create()}, which falls back to the scalar loop when
+ * the module is missing.
+ */
+final class VectorMatcher implements TokenMatcher {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final TokenMatcher SCALAR = new TokenMatcher.Scalar();
+
+    @Override
+    public int count(int[] tokens, int length, int[] pattern) {
+        int m = pattern.length;
+        if (m < 2) {
+            return SCALAR.count(tokens, length, pattern);
+        }
+        // Kept in locals rather than an array so the JIT can hold them in registers
+        IntVector item0 = IntVector.broadcast(SPECIES, pattern[0]);
+        IntVector item1 = IntVector.broadcast(SPECIES, pattern[1]);
+        IntVector item2 = IntVector.broadcast(SPECIES, pattern[Math.min(2, m - 1)]);
+        IntVector item3 = IntVector.broadcast(SPECIES, pattern[Math.min(3, m - 1)]);
+        int lanes = SPECIES.length();
+        int bound = length - m + 1 > 0 ? SPECIES.loopBound(length - m + 1) : 0;
+        int count = 0;
+        int nextFree = 0;
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            // Lane k is set when the pattern, up to its fourth token, starts at i + k
+            VectorMask<Integer> mask = IntVector.fromArray(SPECIES, tokens, i).eq(item0)
+                .and(IntVector.fromArray(SPECIES, tokens, i + 1).eq(item1));
+            if (m > 2) {
+                mask = mask.and(IntVector.fromArray(SPECIES, tokens, i + 2).eq(item2));
+            }
+            if (m > 3) {
+                mask = mask.and(IntVector.fromArray(SPECIES, tokens, i + 3).eq(item3));
+            }
+            long hits = mask.toLong();
+            while (hits != 0) {
+                int start = i + Long.numberOfTrailingZeros(hits);
+                hits &= hits - 1;
+                if (start >= nextFree && (m <= 4 || TokenMatcher.matchesRest(tokens, length, start, pattern))) {
+                    count++;
+                    nextFree = start + m;
+                }
+            }
+        }
+        for (i = Math.max(i, nextFree); i < length; i++) {
+            if (tokens[i] == pattern[0] && TokenMatcher.matchesRest(tokens, length, i, pattern)) {
+                count++;
+                i += m - 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int count(ByteBuffer tokens, int length, int[] pattern) {
+        int m = pattern.length;
+        if (m < 2) {
+            return SCALAR.count(tokens, length, pattern);
+        }
+        ByteOrder order = tokens.order();
+        IntVector item0 = IntVector.broadcast(SPECIES, pattern[0]);
+        IntVector item1 = IntVector.broadcast(SPECIES, pattern[1]);
+        IntVector item2 = IntVector.broadcast(SPECIES, pattern[Math.min(2, m - 1)]);
+        IntVector item3 = IntVector.broadcast(SPECIES, pattern[Math.min(3, m - 1)]);
+        int lanes = SPECIES.length();
+        int bound = length - m + 1 > 0 ? SPECIES.loopBound(length - m + 1) : 0;
+        int count = 0;
+        int nextFree = 0;
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            int offset = i * Integer.BYTES;
+            VectorMask<Integer> mask = IntVector.fromByteBuffer(SPECIES, tokens, offset, order).eq(item0)
+                .and(IntVector.fromByteBuffer(SPECIES, tokens, offset + Integer.BYTES, order).eq(item1));
+            if (m > 2) {
+                mask = mask.and(IntVector.fromByteBuffer(SPECIES, tokens, offset + 2 * Integer.BYTES, order).eq(item2));
+            }
+            if (m > 3) {
+                mask = mask.and(IntVector.fromByteBuffer(SPECIES, tokens, offset + 3 * Integer.BYTES, order).eq(item3));
+            }
+            long hits = mask.toLong();
+            while (hits != 0) {
+                int start = i + Long.numberOfTrailingZeros(hits);
+                hits &= hits - 1;
+                if (start >= nextFree && (m <= 4 || TokenMatcher.matchesRest(tokens, length, start, pattern))) {
+                    count++;
+                    nextFree = start + m;
+                }
+            }
+        }
+        for (i = Math.max(i, nextFree); i < length; i++) {
+            if (tokens.getInt(i * Integer.BYTES) == pattern[0] && TokenMatcher.matchesRest(tokens, length, i, pattern)) {
+                count++;
+                i += m - 1;
+            }
+        }
+        return count;
+    }
+}